@@ -0,0 +1,25 @@
+package bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the allocation profiler. Takes the usual JMH command line options,
+ * e.g. {@code CompletionBenchmark -p file=example-504.txt}. Without a benchmark name all of them are run.
+ */
+public class Benchmarks {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions options = new CommandLineOptions(args);
+        ChainedOptionsBuilder builder = new OptionsBuilder()
+                .parent(options)
+                .addProfiler(GCProfiler.class);
+        if (options.getIncludes().isEmpty()) {
+            builder.include("bench\\..*");
+        }
+        new Runner(builder.build()).run();
+    }
+}
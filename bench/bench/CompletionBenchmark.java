@@ -0,0 +1,80 @@
+package bench;
+
+import kbs.IntRewriteSystem;
+import kbs.RewriteSystem;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Completion and normal forms of the example presentations in res/, for both engines
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CompletionBenchmark {
+
+    @Param({"example-10.txt", "example-12.txt", "example-60.txt", "example-60bis.txt", "example-chloe.txt",
+            "example-testcase.txt", "example-360.txt", "example-504.txt"})
+    public String file;
+
+    private Map<List<Character>, List<Character>> rules;
+    private RewriteSystem<Character> completedGeneric;
+    private IntRewriteSystem completedInt;
+    private int[] word;
+
+    @Setup
+    public void setup() throws Exception {
+        rules = Presentations.characterRules(Presentations.read(file));
+        completedGeneric = new RewriteSystem<>(rules, Presentations.SHORTLEX);
+        completedGeneric.complete();
+        completedInt = Presentations.intSystem(rules);
+        completedInt.complete();
+        Random random = new Random(1);
+        word = new int[30];
+        for (int i = 0; i < word.length; i++) word[i] = random.nextInt(completedInt.getAlphabetSize());
+    }
+
+    @Benchmark
+    public RewriteSystem<Character> genericComplete() {
+        RewriteSystem<Character> system = new RewriteSystem<>(rules, Presentations.SHORTLEX);
+        system.complete();
+        return system;
+    }
+
+    @Benchmark
+    public Set<List<Character>> genericCalcNormalForms() {
+        return completedGeneric.calcNormalForms();
+    }
+
+    @Benchmark
+    public IntRewriteSystem intComplete() {
+        IntRewriteSystem system = Presentations.intSystem(rules);
+        system.complete();
+        return system;
+    }
+
+    @Benchmark
+    public List<int[]> intCalcNormalForms() {
+        return completedInt.calcNormalForms();
+    }
+
+    @Benchmark
+    public BigInteger intCountNormalForms() {
+        return completedInt.countNormalForms();
+    }
+
+    /**
+     * A reduction with the complete system, this must not redo any work of the completion
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int[] intGetUniqueNF() {
+        return completedInt.getUniqueNF(word);
+    }
+}
@@ -0,0 +1,76 @@
+package bench;
+
+import kbs.Alphabet;
+import kbs.IntRewriteSystem;
+import parser.Parser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Loads the presentations used by the benchmarks, either from res/ or made up with a given size.
+ * The benchmarks have to be started from the root of the project.
+ */
+final class Presentations {
+
+    static final Comparator<Collection<Character>> SHORTLEX = (o1, o2) -> {
+        if (o1.size() != o2.size()) return o1.size() - o2.size();
+        Iterator<Character> iterator1 = o1.iterator();
+        Iterator<Character> iterator2 = o2.iterator();
+        while (iterator1.hasNext()) {
+            int diff = iterator1.next().compareTo(iterator2.next());
+            if (diff != 0) return diff;
+        }
+        return 0;
+    };
+
+    private Presentations() {
+    }
+
+    /**
+     * Read res/file, skipping comments and empty lines like Main does
+     */
+    static List<Parser.Result> read(String file) throws IOException, ParseException {
+        return parse(Files.readAllLines(Paths.get("res", file)));
+    }
+
+    /**
+     * The dihedral group of order 2n
+     */
+    static List<Parser.Result> dihedral(int n) throws ParseException {
+        return parse(Arrays.asList("a^" + n + "=1", "b^2=1", "(ab)^2=1"));
+    }
+
+    private static List<Parser.Result> parse(List<String> lines) throws ParseException {
+        Parser parser = new Parser();
+        List<Parser.Result> parsed = new ArrayList<>();
+        for (String line : lines) {
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                parsed.add(parser.parse(line));
+            }
+        }
+        return parsed;
+    }
+
+    static Map<List<Character>, List<Character>> characterRules(List<Parser.Result> list) {
+        Map<List<Character>, List<Character>> rules = new HashMap<>();
+        for (Parser.Result result : list) {
+            rules.put(result.left.stream().map(e -> e.ch).collect(Collectors.toList()),
+                    result.right.stream().map(e -> e.ch).collect(Collectors.toList()));
+        }
+        return rules;
+    }
+
+    static IntRewriteSystem intSystem(Map<List<Character>, List<Character>> rules) {
+        Set<Character> letters = new HashSet<>();
+        rules.forEach((left, right) -> {
+            letters.addAll(left);
+            letters.addAll(right);
+        });
+        return IntRewriteSystem.of(rules, new Alphabet<>(letters, Comparator.naturalOrder()));
+    }
+}
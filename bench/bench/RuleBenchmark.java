@@ -0,0 +1,102 @@
+package bench;
+
+import kbs.IntRule;
+import kbs.Rule;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The hot paths of a single rule: apply, getCritical and canOptimize, on words of the given length.
+ * apply changes its input, so every call works on a copy; copyOnly measures that copy.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RuleBenchmark {
+
+    @Param({"16", "256", "4096"})
+    public int length;
+
+    private List<Character> word;
+    private Rule<Character> rule;
+    private Rule<Character> periodic;
+    private Rule<Character> longRule;
+
+    private int[] intWord;
+    private IntRule intRule;
+    private IntRule intPeriodic;
+    private IntRule intLongRule;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(length);
+        word = new ArrayList<>(length);
+        intWord = new int[length];
+        for (int i = 0; i < length; i++) {
+            intWord[i] = random.nextInt(2);
+            word.add((char) ('a' + intWord[i]));
+        }
+        //"from" part at the very end, so apply has to scan the whole word
+        List<Character> tail = new ArrayList<>(word.subList(length - 8, length));
+        rule = new Rule<>(tail, Collections.singletonList('a'));
+        intRule = new IntRule(Arrays.copyOfRange(intWord, length - 8, length), new int[]{0});
+
+        //(ab)^(length/2) overlaps with itself in length/2 ways
+        List<Character> ab = new ArrayList<>(length);
+        int[] intAb = new int[length];
+        for (int i = 0; i < length; i++) {
+            ab.add(i % 2 == 0 ? 'a' : 'b');
+            intAb[i] = i % 2;
+        }
+        periodic = new Rule<>(ab, Collections.singletonList('b'));
+        intPeriodic = new IntRule(intAb, new int[]{1});
+
+        longRule = new Rule<>(word, Collections.emptyList());
+        intLongRule = new IntRule(intWord, new int[0]);
+    }
+
+    @Benchmark
+    public LinkedList<Character> genericCopyOnly() {
+        return new LinkedList<>(word);
+    }
+
+    @Benchmark
+    public boolean genericApply() {
+        return rule.apply(new LinkedList<>(word));
+    }
+
+    @Benchmark
+    public Object genericGetCritical() {
+        return periodic.getCritical(periodic);
+    }
+
+    @Benchmark
+    public boolean genericCanOptimize() {
+        return rule.canOptimize(longRule);
+    }
+
+    @Benchmark
+    public int[] intCopyOnly() {
+        return intWord.clone();
+    }
+
+    @Benchmark
+    public int intApply() {
+        return intRule.apply(intWord.clone(), length);
+    }
+
+    @Benchmark
+    public Object intGetCritical() {
+        return intPeriodic.getCritical(intPeriodic);
+    }
+
+    @Benchmark
+    public boolean intCanOptimize() {
+        return intRule.canOptimize(intLongRule);
+    }
+}
@@ -0,0 +1,42 @@
+package bench;
+
+import kbs.IntRewriteSystem;
+import kbs.RewriteSystem;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Size of the dihedral group of order 2n, to see how the engines scale
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SyntheticBenchmark {
+
+    @Param({"8", "32", "128", "512"})
+    public int n;
+
+    private Map<List<Character>, List<Character>> rules;
+
+    @Setup
+    public void setup() throws Exception {
+        rules = Presentations.characterRules(Presentations.dihedral(n));
+    }
+
+    @Benchmark
+    public int generic() {
+        return new RewriteSystem<>(rules, Presentations.SHORTLEX).calcNormalForms().size();
+    }
+
+    @Benchmark
+    public BigInteger intEngine() {
+        IntRewriteSystem system = Presentations.intSystem(rules);
+        return system.countNormalForms();
+    }
+}
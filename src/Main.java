@@ -1,80 +1,662 @@
-import kbs.RewriteSystem;
+import kbs.Alphabet;
+import kbs.CompiledRewriteSystem;
+import kbs.CompletionResult;
+import kbs.CompletionStatistics;
+import kbs.IntRewriteSystem;
+import kbs.ReductionCache;
+import parser.FastParser;
 import parser.Parser;
+import parser.Presentation;
+import tc.ToddCoxeter;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.*;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.ParseException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Main program. Reads a group presentation from standard input and
  * outputs its number of elements and the (real) time taken to compute it.
  * <p>
+ * Options:
+ * <pre>
+ *     --backend NAME      how the size is computed: kb (Knuth-Bendix completion, the default), Todd-Coxeter
+ *                         coset enumeration with the hlt or felsch strategy, or portfolio to race several
+ *                         letter orders and strategies of both and keep the first answer
+ *     --max-cosets N      the most rows of the Todd-Coxeter coset table
+ *     --progress MILLIS   print the completion statistics to standard error every MILLIS ms
+ *     --time-limit MILLIS stop the completion after MILLIS ms
+ *     --max-rules N       stop the completion when it needs more than N rules
+ *     --max-from N        stop the completion when it makes a rule with a from part longer than N
+ *     --max-pairs N       stop the completion when more than N critical pairs are pending
+ *                         (a stopped completion prints where it stopped to standard error instead of the size)
+ *     --save FILE         write the completed rewrite system to FILE
+ *     --load FILE         read a completed rewrite system from FILE instead of a presentation from standard input
+ *     --input FILE        read the presentation from FILE instead of standard input
+ *     --query FILE        answer the word problems in FILE ("-" for standard input) instead of printing the size:
+ *                         a line with a word gets its normal form ("1" if empty), a line u=v gets true or false,
+ *                         a line that cannot be read gets "error: " and the reason
+ *     --cache BYTES       remember the normal forms of up to BYTES of queried words, the hit rate goes to
+ *                         standard error
+ *     --batch PATH...     solve every file (or every .txt file of a directory) instead of standard input
+ *     --threads N         number of files solved at the same time in batch mode (default: number of processors)
+ *     --timeout MILLIS    give up on a file after MILLIS ms in batch mode
+ *     --report FILE       write the batch report to FILE, JSON if it ends in .json and CSV otherwise
+ *                         (default: CSV on standard output)
+ * </pre>
+ * --progress, the completion limits, --save, --load, --query and --cache need the Knuth-Bendix backend.
+ * <p>
  * Please implement {@link #sizeOfGroup}.
  * </p>
  */
 public class Main {
 
-    private static final Comparator<Collection<Character>> SHORTLEX = (o1, o2) -> {
-        if (o1.size() != o2.size()) return o1.size() - o2.size();
-        Iterator<Character> iterator1 = o1.iterator();
-        Iterator<Character> iterator2 = o2.iterator();
-        while (true) {
-            if (!iterator1.hasNext()) return 0;
-            Character next1 = iterator1.next();
-            Character next2 = iterator2.next();
-            if (next1.equals(next2)) continue;
-            return next1.compareTo(next2);
-        }
-
-    };
-
     /**
      * Computes the size of the group specified by the given
      * parser result.
      */
-    private static int sizeOfGroup(List<Parser.Result> list) {
+    static int sizeOfGroup(List<Parser.Result> list) {
+        return rewriteSystem(Presentation.of(list)).countNormalForms().intValueExact();
+    }
+
+    /**
+     * Reads a presentation with the {@link FastParser}
+     */
+    static Presentation parse(Reader reader) throws IOException, ParseException {
+        return new FastParser().parse(reader);
+    }
+
+    /**
+     * Converts the presentation to an int coded rewrite system
+     */
+    static IntRewriteSystem rewriteSystem(Presentation presentation) {
+        return rewriteSystem(presentation, alphabet(presentation));
+    }
 
-        //Convert to characters
-        Map<List<Character>, List<Character>> rules = list.stream()
-                .collect(Collectors.toMap(
-                        c -> c.left.stream().map(e -> e.ch).collect(Collectors.toList()),
-                        c -> c.right.stream().map(e -> e.ch).collect(Collectors.toList()))
-                );
+    /**
+     * The letters of the presentation in their natural order (shortlex on the codes)
+     */
+    static Alphabet<Character> alphabet(Presentation presentation) {
+        List<Character> letters = new ArrayList<>();
+        for (char c : presentation.getLetters()) letters.add(c);
+        return new Alphabet<>(letters, Comparator.naturalOrder());
+    }
 
-        RewriteSystem<Character> rewriteSystem = new RewriteSystem<>(rules, SHORTLEX);
+    /**
+     * Converts the presentation to an int coded rewrite system with the given letter order. The relations are
+     * read as monoid relations, inverted letters are taken as the letter itself.
+     */
+    static IntRewriteSystem rewriteSystem(Presentation presentation, Alphabet<Character> alphabet) {
+        char[] letters = presentation.getLetters();
+        int[] codes = new int[letters.length];
+        for (int i = 0; i < letters.length; i++) codes[i] = alphabet.code(letters[i]);
 
+        int[][] left = new int[presentation.size()][];
+        int[][] right = new int[presentation.size()][];
+        for (int i = 0; i < presentation.size(); i++) {
+            left[i] = presentation.getLeft(i);
+            right[i] = presentation.getRight(i);
+            for (int[] side : new int[][]{left[i], right[i]}) {
+                for (int j = 0; j < side.length; j++) side[j] = codes[side[j] >> 1];
+            }
+        }
+        return new IntRewriteSystem(alphabet.size(), left, right);
+    }
 
-        Collection<List<Character>> baseForms = rewriteSystem.calcNormalForms();
+    /**
+     * Converts the presentation to a coset enumeration over the trivial subgroup, left = right becomes the relator
+     * left right^-1. Unlike the rewrite systems this takes inverted letters into account.
+     */
+    static ToddCoxeter toddCoxeter(Presentation presentation, ToddCoxeter.Strategy strategy, int maxCosets) {
+        //the codes of the presentation are the codes of ToddCoxeter.letter
+        ToddCoxeter enumeration = new ToddCoxeter(presentation.getLetters().length, presentation.relators());
+        enumeration.setStrategy(strategy);
+        enumeration.setMaxCosets(maxCosets);
+        return enumeration;
+    }
 
-        //baseForms.stream().forEach(System.out::println);
-        //rewriteSystem.getCompleteRules().stream().forEach(System.out::println);
+    static final List<String> BACKENDS = Arrays.asList("kb", "hlt", "felsch", "portfolio");
 
-        return baseForms.size();
+    /**
+     * Computes the size of the group of the presentation with one of the {@link #BACKENDS}
+     */
+    static BigInteger size(Presentation presentation, String backend, int maxCosets) {
+        switch (backend) {
+            case "kb":
+                return rewriteSystem(presentation).countNormalForms();
+            case "hlt":
+                return BigInteger.valueOf(toddCoxeter(presentation, ToddCoxeter.Strategy.HLT, maxCosets).enumerate());
+            case "felsch":
+                return BigInteger.valueOf(
+                        toddCoxeter(presentation, ToddCoxeter.Strategy.FELSCH, maxCosets).enumerate());
+            case "portfolio":
+                return Portfolio.race(Portfolio.configurations(presentation, maxCosets)).size;
+            default:
+                throw new IllegalArgumentException("Unknown backend " + backend + ", use one of " + BACKENDS);
+        }
     }
 
-    public static void main(String[] args) throws IOException, ParseException {
-        try (InputStreamReader isr = new InputStreamReader(System.in);
-             BufferedReader reader = new BufferedReader(isr)) {
+    public static void main(String[] args) throws IOException, ParseException, InterruptedException {
+        long progress = 0;
+        Path save = null;
+        Path load = null;
+        List<Path> batch = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long timeout = 0;
+        Path report = null;
+        Path input = null;
+        String query = null;
+        long cache = 0;
+        String backend = "kb";
+        int maxCosets = 1 << 22;
+        long timeLimit = 0;
+        int maxRules = Integer.MAX_VALUE;
+        int maxFrom = Integer.MAX_VALUE;
+        long maxPairs = Long.MAX_VALUE;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--backend") && i + 1 < args.length) {
+                backend = args[++i];
+                if (!BACKENDS.contains(backend)) {
+                    throw new IllegalArgumentException("Unknown backend " + backend + ", use one of " + BACKENDS);
+                }
+            } else if (args[i].equals("--max-cosets") && i + 1 < args.length) {
+                maxCosets = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--time-limit") && i + 1 < args.length) {
+                timeLimit = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--max-rules") && i + 1 < args.length) {
+                maxRules = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--max-from") && i + 1 < args.length) {
+                maxFrom = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--max-pairs") && i + 1 < args.length) {
+                maxPairs = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--progress") && i + 1 < args.length) {
+                progress = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--save") && i + 1 < args.length) {
+                save = Paths.get(args[++i]);
+            } else if (args[i].equals("--load") && i + 1 < args.length) {
+                load = Paths.get(args[++i]);
+            } else if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--timeout") && i + 1 < args.length) {
+                timeout = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--report") && i + 1 < args.length) {
+                report = Paths.get(args[++i]);
+            } else if (args[i].equals("--input") && i + 1 < args.length) {
+                input = Paths.get(args[++i]);
+            } else if (args[i].equals("--query") && i + 1 < args.length) {
+                query = args[++i];
+            } else if (args[i].equals("--cache") && i + 1 < args.length) {
+                cache = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--batch")) {
+                batch = new ArrayList<>();
+                while (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                    batch.add(Paths.get(args[++i]));
+                }
+            }
+        }
+
+        long finalTimeLimit = timeLimit;
+        int finalMaxRules = maxRules;
+        int finalMaxFrom = maxFrom;
+        long finalMaxPairs = maxPairs;
+        Consumer<IntRewriteSystem> limits = system -> {
+            system.setTimeLimit(finalTimeLimit);
+            system.setMaxRules(finalMaxRules);
+            system.setMaxFromLength(finalMaxFrom);
+            system.setMaxPendingPairs(finalMaxPairs);
+        };
+
+        if (batch != null) {
+            List<BatchResult> results = runBatch(batchFiles(batch), threads, timeout, backend, maxCosets, limits);
+            if (report == null) {
+                writeReport(results, false, System.out);
+            } else {
+                try (PrintStream out = new PrintStream(Files.newOutputStream(report), false, "UTF-8")) {
+                    writeReport(results, report.toString().endsWith(".json"), out);
+                }
+            }
+            return;
+        }
+
+        if ("-".equals(query) && load == null && input == null) {
+            throw new IllegalArgumentException(
+                    "Queries on standard input need the presentation from --input or --load");
+        }
+
+        if (load != null) {
             long currentTime = System.currentTimeMillis();
-            Parser parser = new Parser();
-
-            // cannot use Java 8 streams because parse throws exception
-            String line = reader.readLine();
-            List<Parser.Result> parsed = new ArrayList<>();
-            while (line != null) {
-                if (!line.isEmpty() && !line.startsWith("#")) {
-                    parsed.add(parser.parse(line));
+            IntRewriteSystem rewriteSystem = IntRewriteSystem.load(load);
+            if (query != null) {
+                Alphabet<String> alphabet = IntRewriteSystem.loadAlphabet(load);
+                if (alphabet == null) {
+                    throw new IllegalArgumentException(load + " has no letter names, save it again to query it");
                 }
-                line = reader.readLine();
+                rewriteSystem.setReductionCache(cache);
+                query(rewriteSystem, alphabet, query);
+                return;
+            }
+            int size = rewriteSystem.countNormalForms().intValueExact();
+            long time = System.currentTimeMillis() - currentTime;
+            System.out.printf("%9d %6d.%03d s\n", size, time/1000, time%1000);
+            return;
+        }
+
+        try (BufferedReader reader = input != null ? Files.newBufferedReader(input, StandardCharsets.UTF_8)
+                : new BufferedReader(new InputStreamReader(System.in))) {
+            long currentTime = System.currentTimeMillis();
+            Presentation parsed = parse(reader);
+            if (!backend.equals("kb")) {
+                BigInteger size = size(parsed, backend, maxCosets);
+                long time = System.currentTimeMillis() - currentTime;
+                System.out.printf("%9s %6d.%03d s\n", size, time/1000, time%1000);
+                return;
+            }
+
+            Alphabet<Character> alphabet = alphabet(parsed);
+            IntRewriteSystem rewriteSystem = rewriteSystem(parsed, alphabet);
+            limits.accept(rewriteSystem);
+            ScheduledExecutorService reporter = null;
+            AtomicReference<CompletionStatistics> printed = new AtomicReference<>();
+            if (progress > 0) {
+                reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread thread = new Thread(r, "progress");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                reporter.scheduleAtFixedRate(() -> {
+                    //every snapshot once, a round can take longer than the period
+                    CompletionStatistics statistics = rewriteSystem.getStatistics();
+                    if (statistics != null && printed.getAndSet(statistics) != statistics) {
+                        System.err.println(statistics);
+                    }
+                }, progress, progress, TimeUnit.MILLISECONDS);
             }
 
-            int size = sizeOfGroup(parsed);
+            CompletionResult completion = rewriteSystem.tryComplete();
+            if (reporter != null) {
+                reporter.shutdownNow();
+                reporter.awaitTermination(1, TimeUnit.SECONDS);
+                CompletionStatistics statistics = rewriteSystem.getStatistics();
+                if (completion.isComplete() && printed.get() != statistics) System.err.println(statistics);
+            }
+            if (!completion.isComplete()) {
+                System.err.println("Stopped: " + completion);
+                return;
+            }
+            if (query != null) {
+                rewriteSystem.setReductionCache(cache);
+                query(rewriteSystem, alphabet, query);
+                return;
+            }
+
+            int size = rewriteSystem.countNormalForms().intValueExact();
             long time = System.currentTimeMillis() - currentTime;
             System.out.printf("%9d %6d.%03d s\n", size, time/1000, time%1000);
+            if (save != null) {
+                rewriteSystem.save(save, alphabet);
+            }
+        }
+    }
+
+    /**
+     * Answer the queries of a file ("-" for standard input) on standard output, the throughput goes to standard error
+     */
+    private static void query(IntRewriteSystem system, Alphabet<?> alphabet, String queries)
+            throws IOException {
+        long start = System.nanoTime();
+        long count;
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+        if (queries.equals("-")) {
+            count = answerQueries(system, alphabet,
+                    new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 1 << 16), out);
+        } else {
+            try (BufferedReader in = Files.newBufferedReader(Paths.get(queries), StandardCharsets.UTF_8)) {
+                count = answerQueries(system, alphabet, in, out);
+            }
+        }
+        out.flush();
+        long time = (System.nanoTime() - start) / 1000000;
+        System.err.printf("%d queries %d.%03d s\n", count, time / 1000, time % 1000);
+        if (system.getReductionCache() != null) System.err.println("cache: " + system.getReductionCache());
+    }
+
+    /** number of lines that are reduced together */
+    private static final int QUERY_BATCH = 4096;
+
+    /**
+     * Answer word problems with a completed system, one query per line.
+     * A word is answered with its normal form ("1" for the empty word), u=v with true or false.
+     * Empty lines and lines starting with # are skipped, a line that cannot be read (bad syntax, a letter that is
+     * not in the alphabet, an inverted letter) is answered with "error: " and the reason.
+     * <p>
+     * Lines are read into one array of letter codes and reduced in place a batch at a time with the
+     * {@link CompiledRewriteSystem} of the system, the arrays are reused for the next batch.
+     * Lines of plain letters are coded directly, anything else (exponents, parentheses) goes through the
+     * {@link Parser}.
+     * When the system has a {@link ReductionCache} the words are looked up there first.
+     * </p>
+     * @return the number of queries
+     */
+    static long answerQueries(IntRewriteSystem system, Alphabet<?> alphabet, BufferedReader in, Writer out)
+            throws IOException {
+        //letter -> code and back, letters have to be single characters
+        char[] letters = new char[alphabet.size()];
+        int maxLetter = 0;
+        for (int c = 0; c < letters.length; c++) {
+            String name = alphabet.letter(c).toString();
+            if (name.length() != 1) {
+                throw new IllegalArgumentException("Only single character letters can be queried: " + name);
+            }
+            letters[c] = name.charAt(0);
+            maxLetter = Math.max(maxLetter, letters[c]);
+        }
+        int[] codes = new int[maxLetter + 1];
+        Arrays.fill(codes, -1);
+        for (int c = 0; c < letters.length; c++) codes[letters[c]] = c;
+
+        CompiledRewriteSystem compiled = system.compile();
+        CompiledRewriteSystem.Buffer buffer = compiled.newBuffer();
+        ReductionCache cache = system.getReductionCache();
+        int[] original = new int[64];
+        Parser parser = new Parser();
+        int[] words = new int[1 << 12];
+        int[] offsets = new int[2 * QUERY_BATCH];
+        int[] lengths = new int[2 * QUERY_BATCH];
+        boolean[] pairs = new boolean[QUERY_BATCH];
+        String[] errors = new String[QUERY_BATCH];
+        char[] text = new char[1 << 14];
+        long count = 0;
+
+        String line = in.readLine();
+        while (line != null) {
+            //fill a batch, a query has one word or two for a pair
+            int queries = 0;
+            int sides = 0;
+            int used = 0;
+            int errorLength = 0;
+            for (; line != null && queries < QUERY_BATCH; line = in.readLine()) {
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                int separator = line.indexOf('=');
+                int end = separator >= 0 ? separator : line.length();
+                if (words.length < used + line.length()) {
+                    words = Arrays.copyOf(words, Math.max(2 * words.length, used + line.length()));
+                }
+                int first = plainWord(line, 0, end, codes, words, used);
+                int second = separator < 0 || first < 0 ? 0
+                        : plainWord(line, separator + 1, line.length(), codes, words, used + first);
+                if (first < 0 || second < 0) {
+                    //not just letters, the parsed sides can be longer than the line
+                    try {
+                        if (line.indexOf('\'') >= 0 || line.contains("^-")) {
+                            //the system reads the relations as a monoid, an inverse has no meaning in it
+                            throw new IllegalArgumentException("Inverted letters cannot be queried: " + line);
+                        }
+                        Parser.Result parsed = parser.parse(line);
+                        int length = parsed.left.size() + parsed.right.size();
+                        if (words.length < used + length) {
+                            words = Arrays.copyOf(words, Math.max(2 * words.length, used + length));
+                        }
+                        int k = used;
+                        for (Parser.Element element : parsed.left) words[k++] = code(element.ch, codes);
+                        for (Parser.Element element : parsed.right) words[k++] = code(element.ch, codes);
+                        first = parsed.left.size();
+                        second = parsed.right.size();
+                    } catch (ParseException | IllegalArgumentException e) {
+                        //only this line is answered with the error
+                        errors[queries++] = "error: " + String.valueOf(e.getMessage()).replace('\n', ' ') + "\n";
+                        errorLength += errors[queries - 1].length();
+                        continue;
+                    }
+                }
+                offsets[sides] = used;
+                lengths[sides++] = first;
+                used += first;
+                if (separator >= 0) {
+                    offsets[sides] = used;
+                    lengths[sides++] = second;
+                    used += second;
+                }
+                errors[queries] = null;
+                pairs[queries++] = separator >= 0;
+            }
+
+            //the answers of the batch are written with one call, normal forms are not longer than their words
+            for (int i = 0; i < sides; i++) {
+                if (cache == null) {
+                    lengths[i] = compiled.reduce(words, offsets[i], lengths[i], words, offsets[i], buffer);
+                    continue;
+                }
+                int length = cache.get(words, offsets[i], lengths[i], words, offsets[i]);
+                if (length < 0) {
+                    //the word is reduced in place, keep it for the cache
+                    if (original.length < lengths[i]) original = new int[Math.max(2 * original.length, lengths[i])];
+                    System.arraycopy(words, offsets[i], original, 0, lengths[i]);
+                    length = compiled.reduce(words, offsets[i], lengths[i], words, offsets[i], buffer);
+                    cache.put(original, 0, lengths[i], words, offsets[i], length);
+                }
+                lengths[i] = length;
+            }
+            int needed = used + 6 * queries + errorLength;
+            if (text.length < needed) text = new char[Math.max(2 * text.length, needed)];
+            int length = 0;
+            int side = 0;
+            for (int q = 0; q < queries; q++) {
+                if (errors[q] != null) {
+                    errors[q].getChars(0, errors[q].length(), text, length);
+                    length += errors[q].length();
+                } else if (pairs[q]) {
+                    boolean equal = lengths[side] == lengths[side + 1];
+                    for (int i = 0; equal && i < lengths[side]; i++) {
+                        equal = words[offsets[side] + i] == words[offsets[side + 1] + i];
+                    }
+                    String answer = equal ? "true\n" : "false\n";
+                    answer.getChars(0, answer.length(), text, length);
+                    length += answer.length();
+                    side += 2;
+                } else {
+                    if (lengths[side] == 0) text[length++] = '1';
+                    for (int i = 0; i < lengths[side]; i++) text[length++] = letters[words[offsets[side] + i]];
+                    text[length++] = '\n';
+                    side++;
+                }
+            }
+            out.write(text, 0, length);
+            count += queries;
+        }
+        return count;
+    }
+
+    /**
+     * Code line[from..to) into words[at..] if it only has letters of the alphabet, "1" is the empty word
+     * @return the length or -1 if the part is not a plain word
+     */
+    private static int plainWord(String line, int from, int to, int[] codes, int[] words, int at) {
+        if (to - from == 1 && line.charAt(from) == '1') return 0;
+        for (int i = from; i < to; i++) {
+            char c = line.charAt(i);
+            if (c >= codes.length || codes[c] < 0) return -1;
+            words[at + i - from] = codes[c];
+        }
+        return to - from;
+    }
+
+    private static int code(char letter, int[] codes) {
+        if (letter >= codes.length || codes[letter] < 0) {
+            throw new IllegalArgumentException("Letter not in alphabet: " + letter);
+        }
+        return codes[letter];
+    }
+
+    static class BatchResult {
+        final Path file;
+        String status = "ok"; //ok, timeout, error or the limit that stopped the completion
+        String size = "";
+        int rules = -1;
+        long parseMillis, completeMillis, totalMillis;
+        String error = "";
+        private boolean done = false;
+
+        BatchResult(Path file) {
+            this.file = file;
+        }
+    }
+
+    /**
+     * The files to solve: files as given, the .txt files of directories sorted by name
+     */
+    static List<Path> batchFiles(List<Path> paths) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path path : paths) {
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> list = Files.list(path)) {
+                    list.filter(f -> Files.isRegularFile(f) && f.toString().endsWith(".txt"))
+                            .sorted().forEach(files::add);
+                }
+            } else {
+                files.add(path);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Solve the files on a pool of the given number of threads in one JVM.
+     * A file that takes longer than the timeout (0 for none) is interrupted and reported as a timeout.
+     * @param backend one of the {@link #BACKENDS}
+     * @param limits  sets the completion limits of a Knuth-Bendix system
+     * @return the results in the order of the files
+     */
+    static List<BatchResult> runBatch(List<Path> files, int threads, long timeout, String backend, int maxCosets,
+                                      Consumer<IntRewriteSystem> limits) throws InterruptedException {
+        ThreadFactory daemons = r -> {
+            Thread thread = new Thread(r, "batch");
+            thread.setDaemon(true);
+            return thread;
+        };
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads), daemons);
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(daemons);
+        try {
+            List<Future<BatchResult>> futures = new ArrayList<>();
+            for (Path file : files) {
+                futures.add(pool.submit(() -> solve(file, timeout, timer, backend, maxCosets, limits)));
+            }
+            List<BatchResult> results = new ArrayList<>();
+            for (int i = 0; i < files.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    BatchResult result = new BatchResult(files.get(i));
+                    result.status = "error";
+                    result.error = String.valueOf(e.getCause());
+                    results.add(result);
+                }
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+            timer.shutdownNow();
+        }
+    }
+
+    private static BatchResult solve(Path file, long timeout, ScheduledExecutorService timer,
+                                     String backend, int maxCosets, Consumer<IntRewriteSystem> limits) {
+        BatchResult result = new BatchResult(file);
+        Thread worker = Thread.currentThread();
+        ScheduledFuture<?> alarm = timeout <= 0 ? null : timer.schedule(() -> {
+            synchronized (result) {
+                if (!result.done) worker.interrupt();
+            }
+        }, timeout, TimeUnit.MILLISECONDS);
+
+        long start = System.nanoTime();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Presentation parsed = parse(reader);
+            long parsedAt = System.nanoTime();
+            result.parseMillis = (parsedAt - start) / 1000000;
+            if (!backend.equals("kb")) {
+                result.size = size(parsed, backend, maxCosets).toString();
+            } else {
+                IntRewriteSystem system = rewriteSystem(parsed);
+                limits.accept(system);
+                CompletionResult completion = system.tryComplete();
+                result.rules = completion.getRules().size();
+                if (completion.status == CompletionResult.Status.CANCELLED) {
+                    throw new CancellationException();
+                } else if (completion.isComplete()) {
+                    result.size = system.countNormalForms().toString();
+                } else {
+                    result.status = completion.status.toString().toLowerCase();
+                }
+            }
+            result.completeMillis = (System.nanoTime() - parsedAt) / 1000000;
+        } catch (CancellationException e) {
+            result.status = "timeout";
+        } catch (Exception e) {
+            result.status = "error";
+            result.error = String.valueOf(e.getMessage());
+        } finally {
+            synchronized (result) {
+                result.done = true;
+            }
+            if (alarm != null) alarm.cancel(false);
+            Thread.interrupted(); //an alarm that went off late must not hit the next file
+        }
+        result.totalMillis = (System.nanoTime() - start) / 1000000;
+        return result;
+    }
+
+    /**
+     * Write the batch results as CSV (with a header line) or as a JSON array
+     */
+    static void writeReport(List<BatchResult> results, boolean json, PrintStream out) {
+        if (json) {
+            out.println("[");
+            for (int i = 0; i < results.size(); i++) {
+                BatchResult r = results.get(i);
+                out.printf("  {\"file\": %s, \"status\": \"%s\", \"size\": %s, \"rules\": %s, "
+                                + "\"parseMillis\": %d, \"completeMillis\": %d, \"totalMillis\": %d, "
+                                + "\"error\": %s}%s%n",
+                        jsonString(r.file.toString()), r.status, r.size.isEmpty() ? "null" : r.size,
+                        r.rules < 0 ? "null" : String.valueOf(r.rules), r.parseMillis, r.completeMillis,
+                        r.totalMillis, jsonString(r.error), i + 1 < results.size() ? "," : "");
+            }
+            out.println("]");
+        } else {
+            out.println("file,status,size,rules,parse_ms,complete_ms,total_ms,error");
+            for (BatchResult r : results) {
+                out.printf("%s,%s,%s,%s,%d,%d,%d,%s%n", csvString(r.file.toString()), r.status, r.size,
+                        r.rules < 0 ? "" : String.valueOf(r.rules), r.parseMillis, r.completeMillis, r.totalMillis,
+                        csvString(r.error));
+            }
+        }
+        out.flush();
+    }
+
+    private static String csvString(String text) {
+        if (text.isEmpty()) return text;
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    private static String jsonString(String text) {
+        StringBuilder result = new StringBuilder("\"");
+        for (char c : text.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                result.append('\\').append(c);
+            } else if (c < 0x20) {
+                result.append(String.format("\\u%04x", (int) c));
+            } else {
+                result.append(c);
+            }
         }
+        return result.append('"').toString();
     }
 
 
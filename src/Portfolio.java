@@ -0,0 +1,148 @@
+import kbs.Alphabet;
+import kbs.IntRewriteSystem;
+import kbs.PairStrategy;
+import parser.Presentation;
+import tc.ToddCoxeter;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Races several ways of computing the size of a group and keeps the first answer.
+ * <p>
+ * How long the completion takes depends a lot on the order of the letters and on the pair strategy, and for some
+ * presentations coset enumeration is much faster, there is no telling beforehand. Every configuration runs on its
+ * own thread, once one of them has the size the others are cancelled by interrupting them: the completion, the
+ * counting of normal forms and the coset enumeration check the interrupt flag and stop with a
+ * {@link CancellationException}.
+ * </p>
+ */
+class Portfolio {
+
+    /**
+     * One way to compute the size
+     */
+    static class Configuration {
+        final String name;
+        final Callable<BigInteger> size;
+
+        Configuration(String name, Callable<BigInteger> size) {
+            this.name = name;
+            this.size = size;
+        }
+    }
+
+    /**
+     * The answer of the fastest configuration
+     */
+    static class Result {
+        final String name;
+        final BigInteger size;
+        final long millis;
+
+        Result(String name, BigInteger size, long millis) {
+            this.name = name;
+            this.size = size;
+            this.millis = millis;
+        }
+    }
+
+    /**
+     * The standard configurations: completion with the letters in natural order, reversed order and most used
+     * letters first, completion with the hybrid pair strategy, and both Todd-Coxeter strategies.
+     * The completion reads the relations as monoid relations (a' is taken as a) and the coset enumeration as group
+     * relations, the configurations that race must read them the same way. When a relation has an inverted letter
+     * only Todd-Coxeter races. Otherwise Todd-Coxeter only joins when the monoid is a group, that is when every
+     * letter has a relation x^n=1; for aa=a the monoid has 2 elements and the group 1.
+     */
+    static List<Configuration> configurations(Presentation presentation, int maxCosets) {
+        char[] letters = presentation.getLetters();
+        Map<Character, Integer> uses = new HashMap<>();
+        Set<Integer> finiteOrder = new HashSet<>();
+        boolean inverted = false;
+        for (char c : letters) uses.put(c, 0);
+        for (int r = 0; r < presentation.size(); r++) {
+            for (int[] side : new int[][]{presentation.getLeft(r), presentation.getRight(r)}) {
+                for (int x : side) {
+                    uses.merge(letters[x >> 1], 1, Integer::sum);
+                    inverted |= (x & 1) != 0;
+                }
+            }
+            int[] power = presentation.getRight(r).length == 0 ? presentation.getLeft(r)
+                    : presentation.getLeft(r).length == 0 ? presentation.getRight(r) : null;
+            if (power != null && power.length > 0 && Arrays.stream(power).allMatch(x -> x == power[0])) {
+                finiteOrder.add(power[0]);
+            }
+        }
+        boolean group = true;
+        for (int c = 0; c < letters.length; c++) group &= finiteOrder.contains(2 * c);
+        Comparator<Character> byUse = Comparator.comparing(uses::get, Comparator.reverseOrder());
+
+        List<Configuration> configurations = new ArrayList<>();
+        if (!inverted) {
+            configurations.add(completion("kb", presentation, Comparator.naturalOrder(), PairStrategy.SHORTEST));
+            configurations.add(completion("kb-reversed", presentation, Comparator.reverseOrder(),
+                    PairStrategy.SHORTEST));
+            configurations.add(completion("kb-frequency", presentation,
+                    byUse.thenComparing(Comparator.naturalOrder()), PairStrategy.SHORTEST));
+            configurations.add(completion("kb-hybrid", presentation, Comparator.naturalOrder(), PairStrategy.HYBRID));
+        }
+        if (inverted || group) {
+            for (ToddCoxeter.Strategy strategy : ToddCoxeter.Strategy.values()) {
+                configurations.add(new Configuration(strategy.toString().toLowerCase(),
+                        () -> BigInteger.valueOf(Main.toddCoxeter(presentation, strategy, maxCosets).enumerate())));
+            }
+        }
+        return configurations;
+    }
+
+    private static Configuration completion(String name, Presentation presentation, Comparator<Character> order,
+                                            PairStrategy strategy) {
+        return new Configuration(name, () -> {
+            Alphabet<Character> alphabet = new Alphabet<>(Main.alphabet(presentation).getLetters(), order);
+            IntRewriteSystem system = Main.rewriteSystem(presentation, alphabet);
+            system.setStrategy(strategy);
+            return system.countNormalForms();
+        });
+    }
+
+    /**
+     * Run the configurations at the same time and return the first one that finishes without an exception.
+     * The others are cancelled, their threads stop at the next interrupt check.
+     * @throws IllegalStateException if every configuration failed, with the last failure as cause
+     * @throws CancellationException if the calling thread is interrupted while waiting
+     */
+    static Result race(List<Configuration> configurations) {
+        if (configurations.isEmpty()) throw new IllegalArgumentException("Nothing to race");
+        ExecutorService pool = Executors.newFixedThreadPool(configurations.size(), r -> {
+            Thread thread = new Thread(r, "portfolio");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long start = System.nanoTime();
+        CompletionService<Result> done = new ExecutorCompletionService<>(pool);
+        List<Future<Result>> futures = new ArrayList<>();
+        try {
+            for (Configuration configuration : configurations) {
+                futures.add(done.submit(() -> new Result(configuration.name, configuration.size.call(),
+                        (System.nanoTime() - start) / 1000000)));
+            }
+            Throwable failure = null;
+            for (int i = 0; i < configurations.size(); i++) {
+                try {
+                    return done.take().get();
+                } catch (ExecutionException e) {
+                    failure = e.getCause();
+                }
+            }
+            throw new IllegalStateException("Every configuration failed", failure);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("The race was interrupted");
+        } finally {
+            futures.forEach(f -> f.cancel(true));
+            pool.shutdownNow();
+        }
+    }
+}
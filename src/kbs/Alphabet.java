@@ -0,0 +1,64 @@
+package kbs;
+
+import java.util.*;
+
+/**
+ * Maps the letters of a presentation to dense int codes 0..size()-1 and back.
+ * The codes follow the given letter order, so shortlex on the codes is shortlex on the letters.
+ * @param <T> The type of the "characters" in the text
+ */
+public class Alphabet<T> {
+    private final List<T> letters;
+    private final Map<T, Integer> codes = new HashMap<>();
+
+    /**
+     * Make an alphabet of the given letters (duplicates are ignored)
+     * @param letters the letters, in any order
+     * @param order   the order of the letters, the smallest letter gets code 0
+     */
+    public Alphabet(Collection<T> letters, Comparator<? super T> order) {
+        TreeSet<T> sorted = new TreeSet<>(order);
+        sorted.addAll(letters);
+        this.letters = new ArrayList<>(sorted);
+        for (int i = 0; i < this.letters.size(); i++) {
+            codes.put(this.letters.get(i), i);
+        }
+    }
+
+    public int size() {
+        return letters.size();
+    }
+
+    public int code(T letter) {
+        Integer code = codes.get(letter);
+        if (code == null) {
+            throw new IllegalArgumentException("Letter not in alphabet: " + letter);
+        }
+        return code;
+    }
+
+    public T letter(int code) {
+        return letters.get(code);
+    }
+
+    public int[] encode(List<T> word) {
+        int[] result = new int[word.size()];
+        int i = 0;
+        for (T letter : word) {
+            result[i++] = code(letter);
+        }
+        return result;
+    }
+
+    public List<T> decode(int[] word) {
+        List<T> result = new ArrayList<>(word.length);
+        for (int code : word) {
+            result.add(letters.get(code));
+        }
+        return result;
+    }
+
+    public List<T> getLetters() {
+        return new ArrayList<>(letters);
+    }
+}
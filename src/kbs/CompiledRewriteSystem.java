@@ -0,0 +1,137 @@
+package kbs;
+
+import java.util.*;
+
+/**
+ * Immutable reducer of a completed {@link IntRewriteSystem}, made by {@link IntRewriteSystem#compile()}.
+ *
+ * Everything is flattened into int arrays when it is made: the transitions of the reduction automaton, the rule
+ * that matches in every state and the "to" parts of the rules. Nothing changes afterwards, so any number of threads
+ * can reduce with the same instance. Every thread needs its own {@link Buffer}, with that nothing is allocated
+ * once the buffer is big enough for the longest word.
+ */
+public final class CompiledRewriteSystem {
+    private final int alphabetSize;
+    private final int ruleCount;
+    /** delta[state * alphabetSize + letter] is the next state */
+    private final int[] delta;
+    /** index of a rule whose "from" part is a suffix of the path to the state, or -1 */
+    private final int[] match;
+    /** length of the "from" part of every rule */
+    private final int[] fromLength;
+    /** the "to" part of rule r is toLetters[toStart[r]..toStart[r + 1]) */
+    private final int[] toStart;
+    private final int[] toLetters;
+
+    /**
+     * Compile the given complete rules (no rule may occur in the "from" part of another)
+     */
+    CompiledRewriteSystem(int alphabetSize, Collection<IntRule> rules) {
+        ReductionAutomaton automaton = ReductionAutomaton.build(alphabetSize, rules);
+        this.alphabetSize = alphabetSize;
+        this.ruleCount = automaton.rules.length;
+        this.delta = automaton.delta;
+
+        IntRule[] indexed = automaton.rules;
+        fromLength = new int[indexed.length];
+        toStart = new int[indexed.length + 1];
+        for (int r = 0; r < indexed.length; r++) {
+            fromLength[r] = indexed[r].from.length;
+            toStart[r + 1] = toStart[r] + indexed[r].to.length;
+        }
+        toLetters = new int[toStart[indexed.length]];
+        for (int r = 0; r < indexed.length; r++) {
+            System.arraycopy(indexed[r].to, 0, toLetters, toStart[r], indexed[r].to.length);
+        }
+
+        match = new int[automaton.stateCount];
+        for (int s = 0; s < match.length; s++) {
+            int t = automaton.own[s] >= 0 ? s : automaton.dict[s];
+            match[s] = t >= 0 ? automaton.own[t] : -1;
+        }
+    }
+
+    public int getAlphabetSize() {
+        return alphabetSize;
+    }
+
+    public int getRuleCount() {
+        return ruleCount;
+    }
+
+    /**
+     * Scratch space of one thread, it grows with the longest word it has seen
+     */
+    public static final class Buffer {
+        private int[] states = new int[17];
+        private int[] pending = new int[16];
+        private int[] words = new int[32]; //normal forms for equal
+
+        private void ensure(int length) {
+            if (pending.length < length) {
+                int size = Math.max(length, 2 * pending.length);
+                states = new int[size + 1];
+                pending = new int[size];
+            }
+        }
+    }
+
+    public Buffer newBuffer() {
+        return new Buffer();
+    }
+
+    /**
+     * Write the normal form of word[offset..offset+length) to target[targetOffset..].
+     * A normal form is never longer than its word, the target may be the word itself (at the same offset).
+     * @return the length of the normal form
+     */
+    public int reduce(int[] word, int offset, int length, int[] target, int targetOffset, Buffer buffer) {
+        buffer.ensure(length);
+        int[] states = buffer.states;
+        int[] pending = buffer.pending; //stack of letters of "to" parts that still have to be read
+        int top = 0;
+        int next = offset;
+        int end = offset + length;
+        int len = 0;
+        states[0] = 0;
+
+        while (top > 0 || next < end) {
+            int c = top > 0 ? pending[--top] : word[next++];
+            int state = delta[states[len] * alphabetSize + c];
+            target[targetOffset + len++] = c;
+            states[len] = state;
+            int rule = match[state];
+            if (rule >= 0) {
+                //back up over the from part and read the to part
+                len -= fromLength[rule];
+                for (int i = toStart[rule + 1] - 1; i >= toStart[rule]; i--) pending[top++] = toLetters[i];
+            }
+        }
+        return len;
+    }
+
+    /**
+     * Get the normal form of a word (makes a new array)
+     */
+    public int[] reduce(int[] word) {
+        int[] result = new int[word.length];
+        return Arrays.copyOf(result, reduce(word, 0, word.length, result, 0, new Buffer()));
+    }
+
+    /**
+     * Check if two words are the same element (have the same normal form), both words are left unchanged
+     */
+    public boolean equal(int[] u, int[] v, Buffer buffer) {
+        if (buffer.words.length < u.length + v.length) {
+            buffer.words = new int[Math.max(u.length + v.length, 2 * buffer.words.length)];
+        }
+        int[] both = buffer.words;
+        int lengthU = reduce(u, 0, u.length, both, 0, buffer);
+        int lengthV = reduce(v, 0, v.length, both, lengthU, buffer);
+        if (lengthU != lengthV) return false;
+        for (int i = 0; i < lengthU; i++) {
+            if (both[i] != both[lengthU + i]) return false;
+        }
+        return true;
+    }
+}
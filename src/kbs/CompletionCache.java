@@ -0,0 +1,218 @@
+package kbs;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Cache of completed rewrite systems keyed by their presentation.
+ *
+ * The presentation is made canonical before it is looked up: every relation is oriented big to small, duplicates
+ * are dropped and the relations are sorted. The letters are already their rank in the letter order (see
+ * {@link Alphabet}), so presentations that only rename the letters without changing their order get the same key.
+ * Presentations of groups can also have their relators (relations w = empty word) rotated to their smallest
+ * rotation, see {@link #setRotateRelators(boolean)}. On a miss the canonical presentation is completed, so the
+ * result does not depend on which variant was seen first.
+ *
+ * The systems are kept in memory in least recently used order, with an optional directory of saved systems
+ * (see {@link IntRewriteSystem#save(Path)}) below it. The returned systems are complete and shared, they must not be
+ * changed. The cache can be used from several threads.
+ */
+public class CompletionCache {
+    private final Map<String, IntRewriteSystem> memory;
+    private final Path directory;
+    private boolean rotateRelators = false;
+    private long hits = 0, diskHits = 0, misses = 0;
+
+    /**
+     * Cache in memory only
+     * @param capacity the number of systems kept
+     */
+    public CompletionCache(int capacity) {
+        this(capacity, null);
+    }
+
+    /**
+     * Cache in memory and in a directory
+     * @param capacity  the number of systems kept in memory
+     * @param directory directory for the saved systems (made if needed), null for none
+     */
+    public CompletionCache(int capacity, Path directory) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be at least 1");
+        }
+        this.memory = new LinkedHashMap<String, IntRewriteSystem>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, IntRewriteSystem> eldest) {
+                return size() > capacity;
+            }
+        };
+        this.directory = directory;
+    }
+
+    /**
+     * Treat relators w = empty word as cyclic words, so rotations of a relator get the same key.
+     * This is only right for presentations of groups: there w = 1 implies that every rotation of w is 1 too.
+     * Off by default.
+     */
+    public synchronized void setRotateRelators(boolean rotateRelators) {
+        this.rotateRelators = rotateRelators;
+    }
+
+    /**
+     * Get the completed system of the relations left[i] = right[i]
+     * @see IntRewriteSystem#IntRewriteSystem(int, int[][], int[][])
+     */
+    public IntRewriteSystem complete(int alphabetSize, int[][] left, int[][] right) {
+        if (left.length != right.length) {
+            throw new IllegalArgumentException("Every left hand side needs a right hand side");
+        }
+        boolean rotate;
+        synchronized (this) {
+            rotate = rotateRelators;
+        }
+        List<int[][]> relations = canonical(left, right, rotate);
+        String key = key(alphabetSize, relations, rotate);
+
+        synchronized (this) {
+            IntRewriteSystem system = memory.get(key);
+            if (system != null) {
+                hits++;
+                return system;
+            }
+        }
+
+        IntRewriteSystem system = null;
+        Path file = directory == null ? null : directory.resolve(key + ".kbs");
+        if (file != null && Files.exists(file)) {
+            try {
+                system = IntRewriteSystem.load(file);
+            } catch (IOException e) {
+                system = null; //computed and written again below
+            }
+        }
+        boolean fromDisk = system != null;
+        if (system == null) {
+            int[][] canonicalLeft = new int[relations.size()][];
+            int[][] canonicalRight = new int[relations.size()][];
+            for (int i = 0; i < relations.size(); i++) {
+                canonicalLeft[i] = relations.get(i)[0];
+                canonicalRight[i] = relations.get(i)[1];
+            }
+            system = new IntRewriteSystem(alphabetSize, canonicalLeft, canonicalRight);
+            system.complete();
+            if (file != null) {
+                try {
+                    Files.createDirectories(directory);
+                    system.save(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not write " + file, e);
+                }
+            }
+        }
+
+        synchronized (this) {
+            if (fromDisk) {
+                diskHits++;
+            } else {
+                misses++;
+            }
+            memory.put(key, system);
+        }
+        return system;
+    }
+
+    /**
+     * Oriented, sorted relations without duplicates, every element is {big, small}
+     */
+    static List<int[][]> canonical(int[][] left, int[][] right, boolean rotate) {
+        TreeSet<int[][]> relations = new TreeSet<>((r1, r2) -> {
+            int diff = Words.compare(r1[0], r2[0]);
+            return diff != 0 ? diff : Words.compare(r1[1], r2[1]);
+        });
+        for (int i = 0; i < left.length; i++) {
+            int compare = Words.compare(left[i], right[i]);
+            if (compare == 0) continue;
+            int[] big = compare > 0 ? left[i] : right[i];
+            int[] small = compare > 0 ? right[i] : left[i];
+            if (rotate && small.length == 0) big = leastRotation(big);
+            relations.add(new int[][]{big.clone(), small.clone()});
+        }
+        return new ArrayList<>(relations);
+    }
+
+    /**
+     * The smallest rotation of the word (all rotations have the same length, so this is also shortlex)
+     */
+    static int[] leastRotation(int[] word) {
+        int best = 0;
+        for (int start = 1; start < word.length; start++) {
+            for (int i = 0; i < word.length; i++) {
+                int diff = word[(start + i) % word.length] - word[(best + i) % word.length];
+                if (diff != 0) {
+                    if (diff < 0) best = start;
+                    break;
+                }
+            }
+        }
+        int[] result = new int[word.length];
+        for (int i = 0; i < word.length; i++) result[i] = word[(best + i) % word.length];
+        return result;
+    }
+
+    /**
+     * SHA-256 of the canonical presentation, in hex
+     */
+    static String key(int alphabetSize, List<int[][]> relations, boolean rotate) {
+        StringBuilder text = new StringBuilder();
+        text.append(alphabetSize).append(rotate ? 'r' : 'p');
+        for (int[][] relation : relations) {
+            text.append('|').append(Arrays.toString(relation[0])).append('=').append(Arrays.toString(relation[1]));
+        }
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            byte[] digest = sha.digest(text.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) hex.append(String.format("%02x", b));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Number of lookups found in memory
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Number of lookups loaded from the directory
+     */
+    public synchronized long getDiskHits() {
+        return diskHits;
+    }
+
+    /**
+     * Number of lookups that had to be completed
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized int size() {
+        return memory.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "CompletionCache{" + memory.size() + " systems, " + hits + " hits, " + diskHits + " disk hits, "
+                + misses + " misses}";
+    }
+}
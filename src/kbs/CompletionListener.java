@@ -0,0 +1,9 @@
+package kbs;
+
+/**
+ * Is told about the progress of {@link IntRewriteSystem#complete()}.
+ * Called on the completing thread after every round and once more when the completion is finished.
+ */
+public interface CompletionListener {
+    void roundFinished(CompletionStatistics statistics);
+}
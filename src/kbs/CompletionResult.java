@@ -0,0 +1,52 @@
+package kbs;
+
+import java.util.*;
+
+/**
+ * Outcome of {@link IntRewriteSystem#tryComplete()}: complete, or stopped by a limit or an interrupt with the
+ * rules it had at that moment.
+ */
+public final class CompletionResult {
+
+    public enum Status {
+        COMPLETE,
+        /** the thread was interrupted */
+        CANCELLED,
+        /** see {@link IntRewriteSystem#setTimeLimit} */
+        TIME_LIMIT,
+        /** see {@link IntRewriteSystem#setMaxRules} */
+        RULE_LIMIT,
+        /** see {@link IntRewriteSystem#setMaxFromLength} */
+        LENGTH_LIMIT,
+        /** see {@link IntRewriteSystem#setMaxPendingPairs} */
+        PAIR_LIMIT
+    }
+
+    public final Status status;
+    /** the statistics at the end, null if the system was loaded complete */
+    public final CompletionStatistics statistics;
+    private final Set<IntRule> rules;
+
+    CompletionResult(Status status, CompletionStatistics statistics, Collection<IntRule> rules) {
+        this.status = status;
+        this.statistics = statistics;
+        this.rules = new HashSet<>(rules);
+    }
+
+    public boolean isComplete() {
+        return status == Status.COMPLETE;
+    }
+
+    /**
+     * The complete rules, or the rules when the completion stopped. Those do not have to be reduced and they
+     * do not decide the word problem, but every rule is a consequence of the relations.
+     */
+    public Set<IntRule> getRules() {
+        return Collections.unmodifiableSet(rules);
+    }
+
+    @Override
+    public String toString() {
+        return status + " with " + rules.size() + " rules" + (statistics != null ? " (" + statistics + ")" : "");
+    }
+}
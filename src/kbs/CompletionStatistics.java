@@ -0,0 +1,66 @@
+package kbs;
+
+/**
+ * Snapshot of the counters of a running (or finished) completion, see {@link IntRewriteSystem#getStatistics()}.
+ * All counters are totals since the start of the completion, times are in nanoseconds.
+ */
+public final class CompletionStatistics {
+    public final int round;
+    public final long pairsGenerated;
+    public final long pairsTrivial;
+    /** critical pairs that were handled before and were skipped */
+    public final long pairsDuplicate;
+    /** critical pairs left out by the criterion, see {@link IntRewriteSystem#setCriticalPairCriterion} */
+    public final long pairsRedundant;
+    /** critical pairs dropped without being made because one of their rules was removed */
+    public final long pairsStale;
+    /** critical pairs written to disk, see {@link IntRewriteSystem#setPairMemory} */
+    public final long pairsSpilled;
+    public final long rulesAdded;
+    public final long rulesRemoved;
+    /** rules whose "to" part was reduced during the completion, see {@link IntRewriteSystem#setInterreduction} */
+    public final long rulesComposed;
+    public final int ruleCount;
+    public final long pendingPairs;
+    public final int longestFrom;
+    public final long generationNanos;
+    public final long normalizationNanos;
+    public final long interreductionNanos;
+    public final long elapsedNanos;
+    public final boolean finished;
+
+    CompletionStatistics(int round, long pairsGenerated, long pairsTrivial, long pairsDuplicate, long pairsRedundant,
+                         long pairsStale, long pairsSpilled, long rulesAdded, long rulesRemoved, long rulesComposed,
+                         int ruleCount, long pendingPairs, int longestFrom, long generationNanos,
+                         long normalizationNanos, long interreductionNanos, long elapsedNanos, boolean finished) {
+        this.round = round;
+        this.pairsGenerated = pairsGenerated;
+        this.pairsTrivial = pairsTrivial;
+        this.pairsDuplicate = pairsDuplicate;
+        this.pairsRedundant = pairsRedundant;
+        this.pairsStale = pairsStale;
+        this.pairsSpilled = pairsSpilled;
+        this.rulesAdded = rulesAdded;
+        this.rulesRemoved = rulesRemoved;
+        this.rulesComposed = rulesComposed;
+        this.ruleCount = ruleCount;
+        this.pendingPairs = pendingPairs;
+        this.longestFrom = longestFrom;
+        this.generationNanos = generationNanos;
+        this.normalizationNanos = normalizationNanos;
+        this.interreductionNanos = interreductionNanos;
+        this.elapsedNanos = elapsedNanos;
+        this.finished = finished;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("round %d%s: %d rules (longest %d), %d pending, %d pairs generated, %d trivial, "
+                        + "%d duplicate, %d redundant, %d stale, %d spilled, %d rules added, %d removed, %d composed, "
+                        + "generation %d ms, normalization %d ms, interreduction %d ms, total %d ms",
+                round, finished ? " (finished)" : "", ruleCount, longestFrom, pendingPairs, pairsGenerated,
+                pairsTrivial, pairsDuplicate, pairsRedundant, pairsStale, pairsSpilled, rulesAdded, rulesRemoved,
+                rulesComposed, generationNanos / 1000000, normalizationNanos / 1000000, interreductionNanos / 1000000,
+                elapsedNanos / 1000000);
+    }
+}
@@ -0,0 +1,1011 @@
+package kbs;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A rewrite system on int coded words that can complete itself.
+ *
+ * This is the specialised version of {@link RewriteSystem}: letters are mapped once to dense codes
+ * (see {@link Alphabet}) and words, rules and critical pairs are flat int arrays. The order is always
+ * shortlex on the codes.
+ */
+public class IntRewriteSystem {
+
+    private final int alphabetSize;
+    private final Set<IntRule> rules;
+    private TreeSet<IntRule> completeRules = null;
+    private CompletionResult completeResult = null;
+
+    //Reduction automaton of the current rules, rules added after it was built are in extraRules
+    private ReductionAutomaton automaton;
+    private final List<IntRule> extraRules = new ArrayList<>();
+    private final ThreadLocal<ReductionAutomaton.ReductionBuffer> buffers =
+            ThreadLocal.withInitial(ReductionAutomaton.ReductionBuffer::new);
+
+    private PairStrategy strategy = PairStrategy.SHORTEST;
+    private int parallelism = 1;
+    private int batchSize = 256;
+    private boolean interreduction = false;
+    private boolean pairCriterion = true;
+    private long pairMemory = Runtime.getRuntime().maxMemory() / 4;
+    private long timeLimit = 0;
+    private int maxRules = Integer.MAX_VALUE;
+    private int maxFromLength = Integer.MAX_VALUE;
+    private long maxPendingPairs = Long.MAX_VALUE;
+    private ReductionCache reductionCache = null;
+
+    //State of a running completion
+    private TreeSet<IntRule> current;
+    private PairQueue pending;
+    private OverlapIndex overlaps;
+    private SubwordIndex fromIndex;
+    private SubwordIndex toIndex;
+    private PairSet seenPairs;
+    private long pairCount = 0;
+    private long deadline;
+
+    //Counters of the running completion, published as CompletionStatistics after every round
+    private CompletionListener listener = null;
+    private volatile CompletionStatistics statistics = null;
+    private int round;
+    private long pairsGenerated, pairsTrivial, pairsDuplicate, pairsRedundant, pairsStale;
+    private long rulesAdded, rulesRemoved, rulesComposed;
+    private long generationNanos, normalizationNanos, interreductionNanos, startNanos;
+
+    /**
+     * Make a rewrite system from relations left[i] = right[i]
+     * @param alphabetSize the number of letters, codes are 0..alphabetSize-1
+     * @param left         left hand sides of the relations
+     * @param right        right hand sides of the relations
+     */
+    public IntRewriteSystem(int alphabetSize, int[][] left, int[][] right) {
+        if (left.length != right.length) {
+            throw new IllegalArgumentException("Every left hand side needs a right hand side");
+        }
+        this.alphabetSize = alphabetSize;
+        this.rules = new HashSet<>();
+        for (int i = 0; i < left.length; i++) {
+            checkCodes(left[i]);
+            checkCodes(right[i]);
+            int compare = Words.compare(left[i], right[i]);
+            if (compare != 0) {
+                rules.add(compare > 0 ? new IntRule(left[i], right[i]) : new IntRule(right[i], left[i]));
+            }
+        }
+    }
+
+    /**
+     * Make a complete rewrite system from stored rules, see {@link #load(Path)}
+     */
+    private IntRewriteSystem(int alphabetSize, IntRule[] completed, ReductionAutomaton automaton) {
+        this.alphabetSize = alphabetSize;
+        this.rules = new HashSet<>(Arrays.asList(completed));
+        this.completeRules = new TreeSet<>(this.rules);
+        this.automaton = automaton;
+    }
+
+    /**
+     * Make a rewrite system from a map of relations, letters are encoded with the given alphabet
+     */
+    public static <T> IntRewriteSystem of(Map<List<T>, List<T>> relations, Alphabet<T> alphabet) {
+        int[][] left = new int[relations.size()][];
+        int[][] right = new int[relations.size()][];
+        int i = 0;
+        for (Map.Entry<List<T>, List<T>> entry : relations.entrySet()) {
+            left[i] = alphabet.encode(entry.getKey());
+            right[i] = alphabet.encode(entry.getValue());
+            i++;
+        }
+        return new IntRewriteSystem(alphabet.size(), left, right);
+    }
+
+    private void checkCodes(int[] word) {
+        for (int c : word) {
+            if (c < 0 || c >= alphabetSize) {
+                throw new IllegalArgumentException("Letter code out of range: " + c);
+            }
+        }
+    }
+
+    /**
+     * Choose the order in which critical pairs are handled, must be set before the system is completed
+     */
+    public void setStrategy(PairStrategy strategy) {
+        checkNotComplete();
+        this.strategy = strategy;
+    }
+
+    public PairStrategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Number of threads used by {@link #complete()}. With more than one thread the pairs are handled in batches on
+     * a fork/join pool of that size. The complete rules are the same for every number of threads.
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        checkNotComplete();
+        this.parallelism = parallelism;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Number of pairs handled per batch when the parallelism is above one
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        }
+        checkNotComplete();
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Keep the rules fully interreduced while completing: after every new rule the "to" parts it can rewrite are
+     * reduced right away, not only at the end. Rules whose "from" part can be rewritten are always removed.
+     * Then every intermediate system is reduced, so the rules stay short and so do the critical pairs made from them.
+     * The complete rules are the same in both modes.
+     */
+    public void setInterreduction(boolean interreduction) {
+        checkNotComplete();
+        this.interreduction = interreduction;
+    }
+
+    public boolean isInterreduction() {
+        return interreduction;
+    }
+
+    /**
+     * Leave out the critical pairs of overlaps that contain the "from" part of a third rule strictly inside
+     * (not at the start or the end). Such a pair can be joined through the pairs of that rule with the two
+     * overlapping rules, which are made anyway. On by default, the complete rules are the same without it.
+     */
+    public void setCriticalPairCriterion(boolean pairCriterion) {
+        checkNotComplete();
+        this.pairCriterion = pairCriterion;
+    }
+
+    public boolean isCriticalPairCriterion() {
+        return pairCriterion;
+    }
+
+    /**
+     * Number of bytes of heap the pending critical pairs may use (estimated), a quarter of the maximum heap by
+     * default. Above that the least urgent pairs are written to a temporary file and read back when they are
+     * needed, this does not change the order in which pairs are handled. A quarter of it goes to the set of pairs
+     * already handled, that is used to skip duplicates; when the set is full it is emptied, so some duplicates are
+     * handled again.
+     */
+    public void setPairMemory(long bytes) {
+        if (bytes < 1) {
+            throw new IllegalArgumentException("The pair memory must be positive");
+        }
+        checkNotComplete();
+        this.pairMemory = bytes;
+    }
+
+    public long getPairMemory() {
+        return pairMemory;
+    }
+
+    /**
+     * Stop the completion after the given number of milliseconds of wall-clock time, 0 for no limit.
+     * See {@link #tryComplete()}.
+     */
+    public void setTimeLimit(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("The time limit must not be negative");
+        }
+        checkNotComplete();
+        this.timeLimit = millis;
+    }
+
+    public long getTimeLimit() {
+        return timeLimit;
+    }
+
+    /**
+     * Stop the completion when it needs more than the given number of rules at the same time.
+     * See {@link #tryComplete()}.
+     */
+    public void setMaxRules(int maxRules) {
+        if (maxRules < 1) {
+            throw new IllegalArgumentException("At least one rule must be allowed");
+        }
+        checkNotComplete();
+        this.maxRules = maxRules;
+    }
+
+    public int getMaxRules() {
+        return maxRules;
+    }
+
+    /**
+     * Stop the completion when it makes a rule with a longer "from" part. See {@link #tryComplete()}.
+     */
+    public void setMaxFromLength(int maxFromLength) {
+        if (maxFromLength < 1) {
+            throw new IllegalArgumentException("The from length limit must be positive");
+        }
+        checkNotComplete();
+        this.maxFromLength = maxFromLength;
+    }
+
+    public int getMaxFromLength() {
+        return maxFromLength;
+    }
+
+    /**
+     * Stop the completion when more critical pairs are waiting. See {@link #tryComplete()}.
+     */
+    public void setMaxPendingPairs(long maxPendingPairs) {
+        if (maxPendingPairs < 1) {
+            throw new IllegalArgumentException("At least one pending pair must be allowed");
+        }
+        checkNotComplete();
+        this.maxPendingPairs = maxPendingPairs;
+    }
+
+    public long getMaxPendingPairs() {
+        return maxPendingPairs;
+    }
+
+    /**
+     * Remember the normal forms that {@link #getUniqueNF} computed, least recently used first out, in at most
+     * maxBytes (estimated). Only worth it when the same words are asked again and again, the reduction itself is
+     * one pass over the word. The completion does not use it, its rules change all the time.
+     * @param maxBytes the size of the cache, 0 for no cache (the default)
+     */
+    public void setReductionCache(long maxBytes) {
+        if (maxBytes < 0) throw new IllegalArgumentException("The cache size cannot be negative");
+        this.reductionCache = maxBytes == 0 ? null : new ReductionCache(maxBytes);
+    }
+
+    /**
+     * The cache of {@link #setReductionCache}, with its hit rate, null if there is none
+     */
+    public ReductionCache getReductionCache() {
+        return reductionCache;
+    }
+
+    /**
+     * Listener that gets the statistics after every round of {@link #complete()}, null for none.
+     * A round is one batch of {@link #setBatchSize batch size} pairs, also when the parallelism is one.
+     */
+    public void setListener(CompletionListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * The statistics of the last finished round of the completion. Can be polled from any thread while
+     * {@link #complete()} runs.
+     * @return the statistics or null if the completion has not started
+     */
+    public CompletionStatistics getStatistics() {
+        return statistics;
+    }
+
+    private void checkNotComplete() {
+        if (completeRules != null) {
+            throw new IllegalStateException("The system is already complete");
+        }
+    }
+
+    public int getAlphabetSize() {
+        return alphabetSize;
+    }
+
+    /**
+     * Apply the rules that set up the system until no rule applies
+     * @param word the word to rewrite (not changed)
+     * @return the rewritten word
+     */
+    public int[] rewrite(int[] word) {
+        return rewriteWith(word, rules);
+    }
+
+    /**
+     * Get the unique normal form of the word with respect to the completed system
+     * @param word the word to rewrite (not changed)
+     * @return the normal form
+     */
+    public int[] getUniqueNF(int[] word) {
+        complete();
+        ReductionCache cache = reductionCache;
+        if (cache == null) return reduce(word);
+        int[] normalForm = cache.get(word);
+        if (normalForm == null) {
+            normalForm = reduce(word);
+            cache.put(word, normalForm);
+        }
+        return normalForm;
+    }
+
+    /**
+     * Complete the system and make an immutable reducer of the complete rules.
+     * Unlike this system the result can be shared by threads, see {@link CompiledRewriteSystem}.
+     */
+    public CompiledRewriteSystem compile() {
+        complete();
+        return new CompiledRewriteSystem(alphabetSize, completeRules);
+    }
+
+    /**
+     * Get the normal forms of many words at once, for deciding lots of word problems with one completed system.
+     * The words are packed one after the other and every normal form is written over its word (it is never longer),
+     * so nothing is allocated once the thread has reduced a word of the longest length.
+     * @param words   the letters, word i is words[offsets[i]..offsets[i] + lengths[i])
+     * @param offsets the start of every word
+     * @param lengths the length of every word, replaced by the length of its normal form
+     * @param count   the number of words
+     */
+    public void reduceAll(int[] words, int[] offsets, int[] lengths, int count) {
+        complete();
+        ReductionAutomaton.ReductionBuffer buffer = buffers.get();
+        for (int i = 0; i < count; i++) {
+            int length = automaton.reduce(words, offsets[i], lengths[i], extraRules, buffer);
+            System.arraycopy(buffer.out, 0, words, offsets[i], length);
+            lengths[i] = length;
+        }
+    }
+
+    /**
+     * Reduce a copy of the word with the automaton and the rules added since it was built
+     */
+    private int[] reduce(int[] word) {
+        ReductionAutomaton.ReductionBuffer buffer = buffers.get();
+        int length = automaton.reduce(word, word.length, extraRules, buffer);
+        return Arrays.copyOf(buffer.out, length);
+    }
+
+    /**
+     * Add a rule to the reduction automaton. The automaton is patched by keeping the rule aside, once there are
+     * too many of those (every one costs a KMP scan) the automaton is rebuilt from the current rules.
+     * Must not be called while other threads are reducing.
+     */
+    private void addToAutomaton(IntRule rule) {
+        extraRules.add(rule);
+        if (extraRules.size() > Math.max(8, automaton.ruleCount() / 8)) {
+            rebuildAutomaton();
+        }
+    }
+
+    private void rebuildAutomaton() {
+        automaton = ReductionAutomaton.build(alphabetSize, current);
+        extraRules.clear();
+    }
+
+    /**
+     * Helper function for {@see rewrite}, reduces a copy of the word.
+     * If a rule was applied we start again from the first rule.
+     */
+    private int[] rewriteWith(int[] word, Collection<IntRule> ruleSet) {
+        int[] buffer = word.clone();
+        int length = buffer.length;
+        boolean doneSomething;
+        do {
+            doneSomething = false;
+            for (IntRule rule : ruleSet) {
+                int newLength = rule.apply(buffer, length);
+                if (newLength >= 0) {
+                    length = newLength;
+                    doneSomething = true;
+                    break;
+                }
+            }
+        } while (doneSomething);
+        return length == buffer.length ? buffer : Arrays.copyOf(buffer, length);
+    }
+
+    /**
+     * Complete the rule system (Knuth–Bendix completion)
+     *
+     * Every relation starts as a pending critical pair. Pending pairs are kept in a priority queue ordered by the
+     * {@link PairStrategy} and handled one at a time: both sides are reduced with the current rules and if they
+     * differ they become a new rule. Right after a new rule is added the rules whose "from" part contains its "from"
+     * part are removed (their relation goes back to the queue) and the overlaps of the new rule are queued.
+     * All reductions go through the {@link ReductionAutomaton} of the current rules.
+     *
+     * With a parallelism above one the pairs are handled in batches instead, see {@link #setParallelism(int)}.
+     * With {@link #setInterreduction interreduction} the "to" parts are also kept reduced after every new rule.
+     * Overlaps that are joinable through a third rule are left out, see {@link #setCriticalPairCriterion}.
+     * At the end every "to" part is reduced, so the result does not depend on the order of the work.
+     *
+     * @throws CancellationException if the thread is interrupted, the system stays incomplete
+     * @throws IllegalStateException if a limit is reached, use {@link #tryComplete()} to get what was done
+     */
+    public void complete() {
+        if (completeRules != null) return;
+        CompletionResult result = tryComplete();
+        if (result.status == CompletionResult.Status.CANCELLED) {
+            throw new CancellationException("The completion was interrupted");
+        } else if (!result.isComplete()) {
+            throw new IllegalStateException("The completion stopped: " + result);
+        }
+    }
+
+    /**
+     * Complete the system like {@link #complete()}, but stop when the thread is interrupted or a limit is
+     * reached: the {@link #setTimeLimit time limit}, the {@link #setMaxRules number of rules}, the
+     * {@link #setMaxFromLength length of a "from" part} or the {@link #setMaxPendingPairs number of pending pairs}.
+     * The limits are checked between critical pairs. A system that stopped stays incomplete, the next call starts
+     * over (for example with higher limits).
+     * @return the result with the complete rules, or the status and the rules and statistics when it stopped
+     */
+    public CompletionResult tryComplete() {
+        if (completeResult != null) return completeResult;
+        if (completeRules != null) {
+            completeResult = new CompletionResult(CompletionResult.Status.COMPLETE, statistics, completeRules);
+            return completeResult;
+        }
+        try {
+            run();
+            completeResult = new CompletionResult(CompletionResult.Status.COMPLETE, statistics, completeRules);
+            return completeResult;
+        } catch (LimitReached | CancellationException e) {
+            CompletionResult.Status status = e instanceof LimitReached ? ((LimitReached) e).status
+                    : CompletionResult.Status.CANCELLED;
+            CompletionResult partial = new CompletionResult(status, statistics, current);
+            current = null;
+            pending = null;
+            overlaps = null;
+            fromIndex = null;
+            toIndex = null;
+            seenPairs = null;
+            return partial;
+        }
+    }
+
+    /**
+     * Thrown inside the completion when a limit is reached
+     */
+    private static class LimitReached extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        final CompletionResult.Status status;
+
+        LimitReached(CompletionResult.Status status) {
+            super(status.toString(), null, false, false);
+            this.status = status;
+        }
+    }
+
+    private void run() {
+        current = new TreeSet<>();
+        pending = new PairQueue(alphabetSize, strategy, pairMemory - pairMemory / 4);
+        overlaps = new OverlapIndex(alphabetSize);
+        fromIndex = new SubwordIndex(alphabetSize, rule -> rule.from);
+        toIndex = interreduction ? new SubwordIndex(alphabetSize, rule -> rule.to) : null;
+        seenPairs = new PairSet(pairMemory / 4);
+        round = 0;
+        pairsGenerated = pairsTrivial = pairsDuplicate = pairsRedundant = pairsStale = 0;
+        rulesAdded = rulesRemoved = rulesComposed = 0;
+        generationNanos = normalizationNanos = interreductionNanos = 0;
+        startNanos = System.nanoTime();
+        deadline = startNanos + timeLimit * 1000000;
+        rebuildAutomaton();
+        for (IntRule rule : rules) {
+            enqueue(new IntRule.CriticalPair(rule.from, rule.to));
+        }
+
+        try {
+            if (parallelism > 1) {
+                ForkJoinPool pool = new ForkJoinPool(parallelism);
+                try {
+                    completeInBatches(pool);
+                    reduceRightSides(pool);
+                } finally {
+                    pool.shutdown();
+                }
+            } else {
+                completeOneByOne();
+                reduceRightSides(null);
+            }
+            publish(true);
+        } catch (LimitReached | CancellationException e) {
+            publish(false);
+            throw e;
+        } finally {
+            pending.close();
+        }
+
+        this.completeRules = current;
+        current = null;
+        pending = null;
+        overlaps = null;
+        fromIndex = null;
+        toIndex = null;
+        seenPairs = null;
+    }
+
+    private void completeOneByOne() {
+        long handled = 0;
+        while (true) {
+            if (++handled % batchSize == 0) publish(false);
+
+            long start = System.nanoTime();
+            IntRule.CriticalPair criticalPair = nextPair();
+            if (criticalPair == null) break;
+            IntRule rule = orient(reduce(criticalPair.to1), reduce(criticalPair.to2));
+            long reduced = System.nanoTime();
+            normalizationNanos += reduced - start;
+            if (rule == null) continue;
+
+            //Rules of which the "from" part can be rewritten by the new rule are removed,
+            //the relation they stood for is handled again as a pair
+            for (IntRule r : fromIndex.containing(rule.from)) {
+                drop(r);
+            }
+            long interreduced = System.nanoTime();
+            interreductionNanos += interreduced - reduced;
+
+            add(rule);
+            overlaps.add(rule);
+            FoundPairs found = new FoundPairs();
+            overlaps.overlaps(rule, collectInto(found, rule, null));
+            enqueueAll(found);
+            long generated = System.nanoTime();
+            generationNanos += generated - interreduced;
+
+            if (interreduction) {
+                for (IntRule r : toIndex.containing(rule.from)) {
+                    compose(r);
+                }
+                interreductionNanos += System.nanoTime() - generated;
+            }
+        }
+    }
+
+    /**
+     * Parallel completion. The best {@link #setBatchSize batch size} pairs are taken from the queue and reduced on the
+     * pool, then they are turned into rules one by one in queue order. The rules made reducible by the new rules are
+     * searched on the pool and dropped in rule order, and the overlaps of the new rules are searched on the pool and
+     * queued in the order of the new rules. So the work done does not depend on the number of threads.
+     */
+    private void completeInBatches(ForkJoinPool pool) {
+        while (!pending.isEmpty()) {
+            publish(false);
+            long start = System.nanoTime();
+            List<IntRule.CriticalPair> batch = new ArrayList<>(batchSize);
+            IntRule.CriticalPair next;
+            while (batch.size() < batchSize && (next = nextPair()) != null) {
+                batch.add(next);
+            }
+
+            //reduce with the rules as they are now, nothing changes during the parallel part
+            int[][] reduced1 = new int[batch.size()][];
+            int[][] reduced2 = new int[batch.size()][];
+            forEach(pool, batch.size(), i -> {
+                reduced1[i] = reduce(batch.get(i).to1);
+                reduced2[i] = reduce(batch.get(i).to2);
+            });
+
+            //rules made earlier in this batch might still apply
+            List<IntRule> added = new ArrayList<>();
+            for (int i = 0; i < batch.size(); i++) {
+                IntRule rule = orient(reduce(reduced1[i]), reduce(reduced2[i]));
+                if (rule != null) {
+                    add(rule);
+                    added.add(rule);
+                }
+            }
+            long reduced = System.nanoTime();
+            normalizationNanos += reduced - start;
+            if (added.isEmpty()) continue;
+
+            //the indexes are only read on the pool, the results are merged in rule order
+            List<SortedSet<IntRule>> reducible = new ArrayList<>(Collections.nCopies(added.size(), null));
+            List<SortedSet<IntRule>> composable = new ArrayList<>(Collections.nCopies(added.size(), null));
+            forEach(pool, added.size(), i -> {
+                reducible.set(i, fromIndex.containing(added.get(i).from));
+                if (interreduction) composable.set(i, toIndex.containing(added.get(i).from));
+            });
+            SortedSet<IntRule> toDrop = new TreeSet<>();
+            SortedSet<IntRule> toCompose = new TreeSet<>();
+            for (int i = 0; i < added.size(); i++) {
+                IntRule rule = added.get(i);
+                reducible.get(i).stream().filter(r -> r != rule).forEach(toDrop::add);
+                if (interreduction) toCompose.addAll(composable.get(i));
+            }
+            toDrop.forEach(this::drop);
+
+            long interreduced = System.nanoTime();
+            interreductionNanos += interreduced - reduced;
+
+            //every new rule is in the index, an overlap between two new rules is only kept by the first one
+            List<IntRule> live = added.stream().filter(r -> !r.removed).collect(Collectors.toList());
+            Map<IntRule, Integer> position = new IdentityHashMap<>();
+            for (IntRule rule : live) {
+                position.put(rule, position.size());
+                overlaps.add(rule);
+            }
+            List<FoundPairs> found = new ArrayList<>();
+            live.forEach(r -> found.add(new FoundPairs()));
+            forEach(pool, live.size(), i -> overlaps.overlaps(live.get(i), collectInto(found.get(i), live.get(i), p -> {
+                Integer other = position.get(p);
+                return other == null || other >= i;
+            })));
+            found.forEach(this::enqueueAll);
+            long generated = System.nanoTime();
+            generationNanos += generated - interreduced;
+
+            //after the overlaps, a composed rule has the same "from" part so its overlaps are already queued
+            for (IntRule rule : toCompose) {
+                if (!rule.removed) compose(rule);
+            }
+            interreductionNanos += System.nanoTime() - generated;
+        }
+    }
+
+    /**
+     * Make a consumer for the overlaps of a rule that adds the non trivial critical pairs to the list
+     * @param rule    the rule whose overlaps are looked up
+     * @param partner which other rules to keep, null for all
+     */
+    private OverlapIndex.OverlapConsumer collectInto(FoundPairs found, IntRule rule, Predicate<IntRule> partner) {
+        return (first, second, length) -> {
+            if (partner != null && !partner.test(first == rule ? second : first)) {
+                return;
+            }
+            IntRule.CriticalPair pair = first.getCritical(second, length);
+            if (pair == null) return;
+            if (pairCriterion && hasInnerRule(first, second, length)) {
+                found.redundant++;
+            } else {
+                found.pairs.add(pair);
+            }
+        };
+    }
+
+    /**
+     * Check if the overlap word of the two rules contains the "from" part of a current rule that does not touch
+     * its first or last letter. Only reads the automaton, so it can run on the pool.
+     */
+    private boolean hasInnerRule(IntRule first, IntRule second, int overlap) {
+        int[] word = Words.concat(first.from, 0, first.from.length, second.from, overlap, second.from.length);
+        if (word.length < 3) return false;
+        int[] inner = Arrays.copyOfRange(word, 1, word.length - 1);
+        int state = 0;
+        for (int c : inner) {
+            state = automaton.next(state, c);
+            if (automaton.matchAt(state) != null) return true;
+        }
+        for (IntRule extra : extraRules) {
+            if (!extra.removed && extra.indexIn(inner, inner.length) >= 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Critical pairs found for the overlaps of one rule, with the number of overlaps left out by the criterion
+     */
+    private static class FoundPairs {
+        final List<IntRule.CriticalPair> pairs = new ArrayList<>();
+        long redundant = 0;
+    }
+
+    private void enqueueAll(FoundPairs found) {
+        pairsGenerated += found.pairs.size() + found.redundant;
+        pairsRedundant += found.redundant;
+        found.pairs.forEach(this::enqueue);
+    }
+
+    /**
+     * Turn two reduced words into a rule, big to small
+     * @return the rule or null if the words are the same
+     */
+    private IntRule orient(int[] to1, int[] to2) {
+        int compare = Words.compare(to1, to2);
+        if (compare == 0) {
+            pairsTrivial++;
+            return null;
+        }
+        return compare > 0 ? new IntRule(to1, to2) : new IntRule(to2, to1);
+    }
+
+    private void add(IntRule rule) {
+        if (rule.from.length > maxFromLength) throw new LimitReached(CompletionResult.Status.LENGTH_LIMIT);
+        if (current.size() >= maxRules) throw new LimitReached(CompletionResult.Status.RULE_LIMIT);
+        current.add(rule);
+        addToAutomaton(rule);
+        fromIndex.add(rule);
+        if (toIndex != null) toIndex.add(rule);
+        rulesAdded++;
+    }
+
+    /**
+     * Replace a rule by the rule with the same "from" part and the reduced "to" part.
+     * The critical pairs of the old rule stay valid (its "to" part reduces to the new one) so none are made.
+     */
+    private void compose(IntRule rule) {
+        IntRule composed = new IntRule(rule.from, reduce(rule.to));
+        current.remove(rule);
+        rule.removed = true;
+        rule.replacement = composed;
+        overlaps.remove(rule);
+        fromIndex.remove(rule);
+        toIndex.remove(rule);
+        current.add(composed);
+        addToAutomaton(composed);
+        overlaps.add(composed);
+        fromIndex.add(composed);
+        toIndex.add(composed);
+        rulesComposed++;
+    }
+
+    /**
+     * Remove a rule from the current rules, its relation is queued again
+     */
+    private void drop(IntRule rule) {
+        rulesRemoved++;
+        current.remove(rule);
+        rule.removed = true;
+        overlaps.remove(rule);
+        fromIndex.remove(rule);
+        if (toIndex != null) toIndex.remove(rule);
+        enqueue(new IntRule.CriticalPair(rule.from, rule.to));
+    }
+
+    /**
+     * Take the next pair that is still needed from the queue and make its words.
+     *
+     * Pairs of overlaps of which a rule was removed are dropped, the relation of that rule was queued again by
+     * {@link #drop} and the rules made from it get their own overlaps. Pairs of overlaps that were handled before
+     * (the same words in any order) are skipped, if the rule such a pair turned into was removed later that relation
+     * was queued again too. The relations themselves are never skipped.
+     * @return the pair or null if the queue is empty
+     */
+    private IntRule.CriticalPair nextPair() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("The completion was interrupted");
+        }
+        if (timeLimit > 0 && System.nanoTime() - deadline > 0) {
+            throw new LimitReached(CompletionResult.Status.TIME_LIMIT);
+        }
+        if (pending.size() > maxPendingPairs) throw new LimitReached(CompletionResult.Status.PAIR_LIMIT);
+        IntRule.CriticalPair pair;
+        while ((pair = pending.poll()) != null) {
+            if (pair.isStale()) {
+                pairsStale++;
+                continue;
+            }
+            pair.materialize();
+            if (pair.overlap > 0 && !seenPairs.add(pair.to1, pair.to2)) {
+                pairsDuplicate++;
+                continue;
+            }
+            return pair;
+        }
+        return null;
+    }
+
+    private void enqueue(IntRule.CriticalPair pair) {
+        pair.sequence = pairCount++;
+        pending.add(pair);
+    }
+
+    /**
+     * Make a new statistics snapshot and tell the listener
+     */
+    private void publish(boolean finished) {
+        int longest = 0;
+        for (IntRule rule : current) longest = Math.max(longest, rule.from.length);
+        CompletionStatistics snapshot = new CompletionStatistics(round++, pairsGenerated, pairsTrivial,
+                pairsDuplicate, pairsRedundant, pairsStale + pending.dropped(), pending.spilled(), rulesAdded,
+                rulesRemoved, rulesComposed, current.size(), pending.size(), longest, generationNanos,
+                normalizationNanos, interreductionNanos, System.nanoTime() - startNanos, finished);
+        statistics = snapshot;
+        if (listener != null) listener.roundFinished(snapshot);
+    }
+
+    /**
+     * Reduce the "to" part of every rule with the complete system. The "from" parts are already irreducible by the
+     * other rules, so this gives the unique reduced system for the ordering.
+     */
+    private void reduceRightSides(ForkJoinPool pool) {
+        rebuildAutomaton();
+        IntRule[] all = current.toArray(new IntRule[0]);
+        IntRule[] reduced = new IntRule[all.length];
+        IntConsumer reduceOne = i -> {
+            int[] to = reduce(all[i].to);
+            reduced[i] = Arrays.equals(to, all[i].to) ? all[i] : new IntRule(all[i].from, to);
+        };
+        if (pool == null) {
+            for (int i = 0; i < all.length; i++) reduceOne.accept(i);
+        } else {
+            forEach(pool, all.length, reduceOne);
+        }
+        current = new TreeSet<>(Arrays.asList(reduced));
+        rebuildAutomaton();
+    }
+
+    /**
+     * Run body(0) .. body(count-1) on the pool
+     */
+    private static void forEach(ForkJoinPool pool, int count, IntConsumer body) {
+        pool.invoke(new RangeTask(body, 0, count));
+    }
+
+    private static class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int THRESHOLD = 16;
+        private final IntConsumer body;
+        private final int from;
+        private final int to;
+
+        RangeTask(IntConsumer body, int from, int to) {
+            this.body = body;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                for (int i = from; i < to; i++) body.accept(i);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RangeTask(body, from, middle), new RangeTask(body, middle, to));
+            }
+        }
+    }
+
+    /**
+     * Calculate the normal forms of the completed system.
+     *
+     * @return every normal form, in shortlex order
+     * @see #normalForms()
+     */
+    public List<int[]> calcNormalForms() {
+        return normalForms().collect(Collectors.toList());
+    }
+
+    /**
+     * Lazy stream of the normal forms of the completed system in shortlex order.
+     *
+     * Words are made when they are needed, so the stream can be stopped early. When there are finitely many normal
+     * forms the stream is sized and splits evenly for parallel use, otherwise it is infinite.
+     */
+    public Stream<int[]> normalForms() {
+        return StreamSupport.stream(normalFormSpliterator(), false);
+    }
+
+    public Iterator<int[]> normalFormIterator() {
+        return Spliterators.iterator(normalFormSpliterator());
+    }
+
+    private Spliterator<int[]> normalFormSpliterator() {
+        complete();
+        NormalFormSpliterator.Counts counts = new NormalFormSpliterator.Counts(automaton);
+        long total = counts.total();
+        return new NormalFormSpliterator(counts, 0, total < 0 ? Long.MAX_VALUE : total);
+    }
+
+    /**
+     * Count the normal forms of the completed system without making them.
+     *
+     * The reduction automaton without its matching states accepts exactly the irreducible words, so the number
+     * of normal forms of length n+1 per state follows from the numbers of length n. Normal forms are prefix closed,
+     * so we stop at the first length without any.
+     *
+     * @return the number of normal forms
+     * @throws IllegalStateException if there are infinitely many normal forms
+     * @throws CancellationException if the thread is interrupted
+     */
+    public BigInteger countNormalForms() {
+        complete();
+        int states = automaton.stateCount;
+        boolean[] irreducible = new boolean[states];
+        int irreducibleStates = 0;
+        for (int s = 0; s < states; s++) {
+            irreducible[s] = automaton.matchAt(s) == null;
+            if (irreducible[s]) irreducibleStates++;
+        }
+
+        BigInteger[] count = new BigInteger[states];
+        BigInteger[] next = new BigInteger[states];
+        Arrays.fill(count, BigInteger.ZERO);
+        count[0] = BigInteger.ONE;
+        BigInteger total = BigInteger.ZERO;
+
+        for (int length = 0; ; length++) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("The count was interrupted");
+            }
+            BigInteger level = BigInteger.ZERO;
+            for (BigInteger c : count) level = level.add(c);
+            if (level.signum() == 0) break;
+            if (length >= irreducibleStates) {
+                //a path this long visits a state twice, that loop can be repeated
+                throw new IllegalStateException("The system has infinitely many normal forms");
+            }
+            total = total.add(level);
+
+            Arrays.fill(next, BigInteger.ZERO);
+            for (int s = 0; s < states; s++) {
+                if (count[s].signum() == 0) continue;
+                for (int c = 0; c < alphabetSize; c++) {
+                    int t = automaton.next(s, c);
+                    if (irreducible[t]) next[t] = next[t].add(count[s]);
+                }
+            }
+            BigInteger[] swap = count;
+            count = next;
+            next = swap;
+        }
+        return total;
+    }
+
+    public Set<IntRule> getCompleteRules() {
+        complete();
+        return new HashSet<>(completeRules);
+    }
+
+    /**
+     * Complete the system and write it to a binary file that {@link #load(Path)} can read
+     */
+    public void save(Path file) throws IOException {
+        save(file, null);
+    }
+
+    /**
+     * Complete the system and write it to a binary file with the reduction automaton.
+     * @param alphabet the alphabet of the codes, only the names of the letters are stored (null for none),
+     *                 see {@link #loadAlphabet(Path)}
+     */
+    public void save(Path file, Alphabet<?> alphabet) throws IOException {
+        complete();
+        List<String> letters = new ArrayList<>();
+        if (alphabet != null) {
+            if (alphabet.size() != alphabetSize) {
+                throw new IllegalArgumentException("The alphabet has " + alphabet.size() + " letters, not "
+                        + alphabetSize);
+            }
+            alphabet.getLetters().forEach(letter -> letters.add(letter.toString()));
+        }
+        //the automaton was built from the complete rules at the end of complete()
+        SystemFile.write(file, alphabetSize, letters, automaton.rules, automaton);
+    }
+
+    /**
+     * Read a system written by {@link #save(Path)}. The system is complete, it can reduce words right away.
+     * The initial rules of the loaded system are its complete rules.
+     * @throws IOException if the file can not be read or is not a rewrite system file of a supported version
+     */
+    public static IntRewriteSystem load(Path file) throws IOException {
+        SystemFile.Contents contents = SystemFile.read(file);
+        ReductionAutomaton automaton = contents.automaton != null ? contents.automaton
+                : ReductionAutomaton.build(contents.alphabetSize, Arrays.asList(contents.rules));
+        return new IntRewriteSystem(contents.alphabetSize, contents.rules, automaton);
+    }
+
+    /**
+     * Read the letter names stored by {@link #save(Path, Alphabet)}, the codes are the same as when it was saved
+     * @return the alphabet or null if no names were stored
+     */
+    public static Alphabet<String> loadAlphabet(Path file) throws IOException {
+        List<String> letters = SystemFile.read(file).letters;
+        if (letters.isEmpty()) return null;
+        return new Alphabet<>(letters, Comparator.comparingInt(letters::indexOf));
+    }
+
+    public Set<IntRule> getRules() {
+        return rules.stream().collect(Collectors.toSet());
+    }
+}
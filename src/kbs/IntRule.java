@@ -0,0 +1,277 @@
+package kbs;
+
+import java.util.*;
+
+/**
+ * Rule of the int coded rewrite system ({@link IntRewriteSystem}).
+ * Both sides are flat arrays of letter codes, Knuth-Moris-Pratt is used to find the left hand side in a word.
+ */
+public class IntRule implements Comparable<IntRule> {
+    final int[] from;
+    final int[] to;
+    private final int[] lut;
+    /** set when the rule is dropped from a rewrite system, automata built before skip it */
+    boolean removed = false;
+    /** set when the rule was replaced by a rule with the same from part and a reduced to part */
+    IntRule replacement = null;
+
+    /**
+     * Make a Rule for the int rewrite system
+     *
+     * *Note*: the "to" side must not be longer than the "from" side, rewriting is done in place.
+     *
+     * @param from the codes that should be replaced
+     * @param to   the codes by which from should be replaced
+     */
+    public IntRule(int[] from, int[] to) {
+        if (from.length == 0 || to.length > from.length) {
+            throw new IllegalArgumentException("A rule must not make words longer and must have a non empty from part");
+        }
+        this.from = from.clone();
+        this.to = to.clone();
+        this.lut = makeKMP(this.from);
+    }
+
+    /**
+     * Make the Knuth-Moris-Pratt failure table. lut[i] is the length of the longest proper border of from[0..i]
+     */
+    private static int[] makeKMP(int[] from) {
+        int[] lut = new int[from.length];
+        int k = 0;
+        for (int i = 1; i < from.length; i++) {
+            while (k > 0 && from[i] != from[k]) k = lut[k - 1];
+            if (from[i] == from[k]) k++;
+            lut[i] = k;
+        }
+        return lut;
+    }
+
+    /**
+     * Find the first occurrence of the from part
+     * @param word   the word to search in
+     * @param length the used length of word
+     * @return the start index of the first occurrence or -1
+     */
+    public int indexIn(int[] word, int length) {
+        int k = 0;
+        for (int i = 0; i < length; i++) {
+            while (k > 0 && word[i] != from[k]) k = lut[k - 1];
+            if (word[i] == from[k]) {
+                k++;
+                if (k == from.length) return i - k + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Apply the rule once to the word (in place)
+     * @param word   the word to rewrite, the result is written in the same array
+     * @param length the used length of word
+     * @return the new length or -1 if the rule did not apply
+     */
+    public int apply(int[] word, int length) {
+        int start = indexIn(word, length);
+        if (start < 0) return -1;
+        System.arraycopy(to, 0, word, start, to.length);
+        System.arraycopy(word, start + from.length, word, start + to.length, length - start - from.length);
+        return length - from.length + to.length;
+    }
+
+    /**
+     * Get the critical pairs for the overlaps where a suffix of this from is a prefix of the other from
+     */
+    public List<CriticalPair> getCritical(IntRule other) {
+        int[] f1 = this.from;
+        int[] f2 = other.from;
+        List<CriticalPair> result = new ArrayList<>();
+
+        for (int overlap = Math.min(f1.length, f2.length); overlap > 0; overlap--) {
+            boolean ok = true;
+            for (int i = 0; i < overlap && ok; i++) {
+                ok = f2[i] == f1[f1.length - overlap + i];
+            }
+            if (ok) {
+                CriticalPair pair = getCritical(other, overlap);
+                if (pair != null) result.add(pair);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the critical pair of an overlap that is known to exist. The words of the pair are only made
+     * when they are needed, see {@link CriticalPair#materialize()}.
+     * @param other   the rule whose from starts with the last overlap letters of this from
+     * @param overlap the number of shared letters
+     * @return the pair or null if both sides are the same
+     */
+    CriticalPair getCritical(IntRule other, int overlap) {
+        //"this" first gives to + other.from[overlap..], "other" first gives from[..length-overlap] + other.to
+        int length1 = this.to.length + other.from.length - overlap;
+        int length2 = this.from.length - overlap + other.to.length;
+        if (length1 == length2) {
+            boolean same = true;
+            for (int i = 0; i < length1 && same; i++) {
+                int c1 = i < this.to.length ? this.to[i] : other.from[overlap + i - this.to.length];
+                int c2 = i < this.from.length - overlap ? this.from[i] : other.to[i - this.from.length + overlap];
+                same = c1 == c2;
+            }
+            if (same) return null;
+        }
+        return new CriticalPair(this, other, overlap, Math.max(length1, length2));
+    }
+
+    /**
+     * find out if this Rule can optimize the given rule (the from part of this occurs in the from part of rule)
+     */
+    public boolean canOptimize(IntRule rule) {
+        return !this.equals(rule) && indexIn(rule.from, rule.from.length) >= 0;
+    }
+
+    public int[] getFrom() {
+        return from.clone();
+    }
+
+    public int[] getTo() {
+        return to.clone();
+    }
+
+    /**
+     * Shortlex on the from part, then on the to part
+     */
+    @Override
+    public int compareTo(IntRule o) {
+        int diff = Words.compare(this.from, o.from);
+        return diff != 0 ? diff : Words.compare(this.to, o.to);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        IntRule rule = (IntRule) o;
+        return Arrays.equals(from, rule.from) && Arrays.equals(to, rule.to);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(from) + Arrays.hashCode(to);
+    }
+
+    @Override
+    public String toString() {
+        return "IntRule{" + Words.toString(from) + " -> " + Words.toString(to) + '}';
+    }
+
+    /**
+     * The two results of rewriting an overlap.
+     *
+     * A pair of an overlap only keeps the two rules and the overlap length until its words are needed, so queued
+     * pairs are small and pairs of rules that are removed before they are handled are never made.
+     */
+    public static class CriticalPair {
+        int[] to1;
+        int[] to2;
+        /** the overlapping rules, null once the words are made or if the pair was made from words */
+        private IntRule first;
+        private IntRule second;
+        /** the overlap length, 0 if the pair was made from words */
+        final int overlap;
+        /** length of the longest side */
+        final int length;
+        /** creation order, set by the rewrite system */
+        long sequence;
+
+        public CriticalPair(int[] to1, int[] to2) {
+            if (to1 == null || to2 == null) {
+                throw new IllegalArgumentException("to1 and t2 must not be null");
+            }
+            this.to1 = to1;
+            this.to2 = to2;
+            this.overlap = 0;
+            this.length = Math.max(to1.length, to2.length);
+        }
+
+        /**
+         * Pair of which the words are known, with the overlap and length of the pair it was made from
+         */
+        CriticalPair(int[] to1, int[] to2, int overlap, int length) {
+            this.to1 = to1;
+            this.to2 = to2;
+            this.overlap = overlap;
+            this.length = length;
+        }
+
+        private CriticalPair(IntRule first, IntRule second, int overlap, int length) {
+            this.first = first;
+            this.second = second;
+            this.overlap = overlap;
+            this.length = length;
+        }
+
+        /**
+         * Check if one of the overlapping rules was removed since the pair was made.
+         * A rule that was replaced by a rule with a reduced to part still counts, the replacement is used.
+         */
+        boolean isStale() {
+            return first != null && (latest(first).removed || latest(second).removed);
+        }
+
+        private static IntRule latest(IntRule rule) {
+            while (rule.replacement != null) rule = rule.replacement;
+            return rule;
+        }
+
+        /**
+         * Make the words of a pair of an overlap, with the current versions of its rules
+         */
+        void materialize() {
+            if (first == null) return;
+            IntRule a = latest(first);
+            IntRule b = latest(second);
+            to1 = Words.concat(a.to, 0, a.to.length, b.from, overlap, b.from.length);
+            to2 = Words.concat(a.from, 0, a.from.length - overlap, b.to, 0, b.to.length);
+            first = null;
+            second = null;
+        }
+
+        public int[] getTo1() {
+            materialize();
+            return to1.clone();
+        }
+
+        public int[] getTo2() {
+            materialize();
+            return to2.clone();
+        }
+
+        /**
+         * Pairs are equal if they have the same sides, in any order
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            CriticalPair pair = (CriticalPair) o;
+            materialize();
+            pair.materialize();
+            return Arrays.equals(to1, pair.to1) && Arrays.equals(to2, pair.to2)
+                    || Arrays.equals(to1, pair.to2) && Arrays.equals(to2, pair.to1);
+        }
+
+        @Override
+        public int hashCode() {
+            materialize();
+            return Arrays.hashCode(to1) + Arrays.hashCode(to2);
+        }
+
+        @Override
+        public String toString() {
+            materialize();
+            return "CriticalPair{to1=" + Words.toString(to1) + ", to2=" + Words.toString(to2) + '}';
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package kbs;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Lazily enumerates the normal forms of a completed system in shortlex order.
+ *
+ * The normal forms are the words the reduction automaton reads without reaching a matching state. For every
+ * length k and state we know how many irreducible words of length k can follow, so the n-th normal form can be
+ * found directly (used to split) and the next one is found by changing the last letter that can still be increased.
+ * Only the current word and the table of counts are kept.
+ */
+class NormalFormSpliterator implements Spliterator<int[]> {
+
+    /**
+     * Counts shared by all parts of a split enumeration
+     */
+    static class Counts {
+        private final ReductionAutomaton automaton;
+        private final boolean[] irreducible;
+        //rows.get(k)[s] is the number of irreducible words of length k after state s (saturates at Long.MAX_VALUE)
+        private final List<long[]> rows = new ArrayList<>();
+        private final long total; //number of normal forms, -1 if infinite
+
+        Counts(ReductionAutomaton automaton) {
+            this.automaton = automaton;
+            int states = automaton.stateCount;
+            irreducible = new boolean[states];
+            int irreducibleStates = 0;
+            long[] first = new long[states];
+            for (int s = 0; s < states; s++) {
+                irreducible[s] = automaton.matchAt(s) == null;
+                if (irreducible[s]) {
+                    first[s] = 1;
+                    irreducibleStates++;
+                }
+            }
+            rows.add(first);
+
+            long sum = 0;
+            int length = 0;
+            while (length <= irreducibleStates && row(length)[0] > 0) {
+                sum = add(sum, row(length)[0]);
+                length++;
+            }
+            total = length > irreducibleStates ? -1 : sum;
+        }
+
+        private static long add(long a, long b) {
+            long r = a + b;
+            return r < 0 ? Long.MAX_VALUE : r;
+        }
+
+        synchronized long[] row(int length) {
+            while (rows.size() <= length) {
+                long[] previous = rows.get(rows.size() - 1);
+                long[] next = new long[previous.length];
+                for (int s = 0; s < next.length; s++) {
+                    if (!irreducible[s]) continue;
+                    long count = 0;
+                    for (int c = 0; c < automaton.alphabetSize; c++) {
+                        int t = automaton.next(s, c);
+                        if (irreducible[t]) count = add(count, previous[t]);
+                    }
+                    next[s] = count;
+                }
+                rows.add(next);
+            }
+            return rows.get(length);
+        }
+
+        long total() {
+            return total;
+        }
+    }
+
+    private final Counts counts;
+    private final ReductionAutomaton automaton;
+    private long index;   //rank of the next word to give
+    private final long end;     //exclusive, Long.MAX_VALUE if unbounded
+    private int[] word = null;  //the next word, made when needed
+    private int[] states;
+
+    NormalFormSpliterator(Counts counts, long from, long end) {
+        this.counts = counts;
+        this.automaton = counts.automaton;
+        this.index = from;
+        this.end = end;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super int[]> action) {
+        if (index >= end) return false;
+        if (word == null) {
+            if (!unrank(index)) {
+                index = end;
+                return false;
+            }
+        }
+        action.accept(word.clone());
+        index++;
+        if (index < end && !advance()) index = end;
+        return true;
+    }
+
+    /**
+     * Make the word with the given rank
+     * @return false if there are not that many normal forms
+     */
+    private boolean unrank(long rank) {
+        int length = 0;
+        while (rank >= counts.row(length)[0]) {
+            if (counts.row(length)[0] == 0) return false;
+            rank -= counts.row(length)[0];
+            length++;
+        }
+        word = new int[length];
+        states = new int[length + 1];
+        for (int i = 0; i < length; i++) {
+            long[] row = counts.row(length - i - 1);
+            for (int c = 0; c < automaton.alphabetSize; c++) {
+                int t = automaton.next(states[i], c);
+                if (!counts.irreducible[t]) continue;
+                if (rank < row[t]) {
+                    word[i] = c;
+                    states[i + 1] = t;
+                    break;
+                }
+                rank -= row[t];
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Go to the next normal form in shortlex order
+     * @return false if there is none
+     */
+    private boolean advance() {
+        int length = word.length;
+        for (int i = length - 1; i >= 0; i--) {
+            long[] row = counts.row(length - i - 1);
+            for (int c = word[i] + 1; c < automaton.alphabetSize; c++) {
+                int t = automaton.next(states[i], c);
+                if (counts.irreducible[t] && row[t] > 0) {
+                    word[i] = c;
+                    states[i + 1] = t;
+                    fill(i + 1);
+                    return true;
+                }
+            }
+        }
+        //first word of the next length
+        if (counts.row(length + 1)[0] == 0) return false;
+        word = new int[length + 1];
+        states = new int[length + 2];
+        fill(0);
+        return true;
+    }
+
+    /**
+     * Complete word[from..] with the smallest letters that still lead to a normal form
+     */
+    private void fill(int from) {
+        int length = word.length;
+        for (int i = from; i < length; i++) {
+            long[] row = counts.row(length - i - 1);
+            for (int c = 0; c < automaton.alphabetSize; c++) {
+                int t = automaton.next(states[i], c);
+                if (counts.irreducible[t] && row[t] > 0) {
+                    word[i] = c;
+                    states[i + 1] = t;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Split off the first half of the remaining ranks. Unbounded enumerations are not split.
+     */
+    @Override
+    public Spliterator<int[]> trySplit() {
+        if (end == Long.MAX_VALUE || end - index < 2) return null;
+        long middle = index + (end - index) / 2;
+        NormalFormSpliterator prefix = new NormalFormSpliterator(counts, index, middle);
+        index = middle;
+        word = null;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return end == Long.MAX_VALUE ? Long.MAX_VALUE : end - index;
+    }
+
+    @Override
+    public int characteristics() {
+        int characteristics = ORDERED | DISTINCT | SORTED | NONNULL | IMMUTABLE;
+        return end == Long.MAX_VALUE ? characteristics : characteristics | SIZED | SUBSIZED;
+    }
+
+    @Override
+    public Comparator<? super int[]> getComparator() {
+        return (Comparator<int[]>) Words::compare;
+    }
+}
@@ -0,0 +1,72 @@
+package kbs;
+
+import java.util.*;
+
+/**
+ * Index of the "from" parts of rules to find overlaps without trying every pair of rules.
+ *
+ * Two tries are kept: one of the "from" parts and one of the reversed "from" parts. A suffix of a new "from"
+ * is walked down the first trie, every rule below the node where the suffix ends starts with that suffix.
+ * The same is done with the prefixes of the new "from" in the reversed trie for rules that end with it.
+ */
+class OverlapIndex {
+
+    /**
+     * Receives the overlaps: a suffix of first.from of the given length is a prefix of second.from
+     */
+    interface OverlapConsumer {
+        void overlap(IntRule first, IntRule second, int length);
+    }
+
+    private final RuleTrie forward;
+    private final RuleTrie backward;
+
+    OverlapIndex(int alphabetSize) {
+        forward = new RuleTrie(alphabetSize);
+        backward = new RuleTrie(alphabetSize);
+    }
+
+    void add(IntRule rule) {
+        forward.add(rule.from, 0, rule.from.length, false, rule);
+        backward.add(rule.from, 0, rule.from.length, true, rule);
+    }
+
+    /**
+     * Remove a rule, nothing happens if the rule is not in the index
+     */
+    void remove(IntRule rule) {
+        forward.remove(rule.from, 0, rule.from.length, false, rule);
+        backward.remove(rule.from, 0, rule.from.length, true, rule);
+    }
+
+    /**
+     * Report every overlap of the rule with the rules in the index, in both directions.
+     * If the rule itself is in the index its overlaps with itself are reported once.
+     */
+    void overlaps(IntRule rule, OverlapConsumer consumer) {
+        int[] from = rule.from;
+        List<IntRule> found = new ArrayList<>();
+
+        //suffix of rule.from is prefix of other.from
+        for (int start = 0; start < from.length; start++) {
+            int node = forward.walk(from, start, from.length, false);
+            if (node < 0) continue;
+            found.clear();
+            forward.collect(node, found);
+            for (IntRule other : found) {
+                consumer.overlap(rule, other, from.length - start);
+            }
+        }
+
+        //prefix of rule.from is suffix of other.from
+        for (int end = 1; end <= from.length; end++) {
+            int node = backward.walk(from, 0, end, true);
+            if (node < 0) continue;
+            found.clear();
+            backward.collect(node, found);
+            for (IntRule other : found) {
+                if (other != rule) consumer.overlap(other, rule, end);
+            }
+        }
+    }
+}
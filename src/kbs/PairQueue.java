@@ -0,0 +1,336 @@
+package kbs;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Priority queue of pending critical pairs that keeps at most a given number of bytes of pairs on the heap.
+ *
+ * When the pairs in memory go over the budget, the worse half of them is sorted and written to a spill file as one
+ * run. A run is read back with a small buffer, so taking the next pair compares the best pair in memory with the
+ * first unread pair of every run. The order is exactly the order of the comparator, spilling only changes where
+ * the pairs are kept. Spilled pairs are stored with their words, so they are made before they are written.
+ * The read buffer and the first pair of every run count for the budget as well. Once the runs take more than half
+ * of it, they are merged into one run in a new spill file, so many spills do not add up to many buffers.
+ */
+class PairQueue implements AutoCloseable {
+    private static final int READ_BUFFER = 8192;
+    private static final int MIN_READ_BUFFER = 64;
+
+    private final Comparator<IntRule.CriticalPair> order;
+    private final long budget;
+    private final int letterBytes; //1 if every letter fits in a byte
+    private final int readBuffer;
+    private PriorityQueue<IntRule.CriticalPair> memory;
+    private long memoryBytes = 0;
+
+    private Path file = null;
+    private FileChannel channel = null;
+    private long fileSize = 0;
+    private final PriorityQueue<Run> runs;
+    private long runBytes = 0; //read buffers and heads of the runs
+    private long spilledLeft = 0;
+    private long spilled = 0;
+    private long dropped = 0;
+
+    /**
+     * @param alphabetSize the number of letters
+     * @param order        the order in which pairs are taken
+     * @param budget       number of bytes the pairs in memory may use (estimated)
+     */
+    PairQueue(int alphabetSize, Comparator<IntRule.CriticalPair> order, long budget) {
+        this.order = order;
+        this.budget = budget;
+        this.letterBytes = alphabetSize <= 256 ? 1 : 4;
+        this.readBuffer = (int) Math.max(MIN_READ_BUFFER, Math.min(READ_BUFFER, budget / 16));
+        this.memory = new PriorityQueue<>(order);
+        this.runs = new PriorityQueue<>((r1, r2) -> order.compare(r1.head, r2.head));
+    }
+
+    /**
+     * Rough size of a pair on the heap, with its slot in the queue
+     */
+    private static long bytes(IntRule.CriticalPair pair) {
+        long size = 64;
+        if (pair.to1 != null) size += 32 + 4L * (pair.to1.length + pair.to2.length);
+        return size;
+    }
+
+    void add(IntRule.CriticalPair pair) {
+        memory.add(pair);
+        memoryBytes += bytes(pair);
+        if (memoryBytes + runBytes > budget && memory.size() > 1) spill();
+    }
+
+    /**
+     * Take the best pair
+     * @return the pair or null if the queue is empty
+     */
+    IntRule.CriticalPair poll() {
+        Run run = runs.peek();
+        if (run != null && (memory.isEmpty() || order.compare(run.head, memory.peek()) < 0)) {
+            runs.poll();
+            runBytes -= run.bytes();
+            IntRule.CriticalPair pair = run.head;
+            spilledLeft--;
+            addRun(run);
+            return pair;
+        }
+        IntRule.CriticalPair pair = memory.poll();
+        if (pair != null) memoryBytes -= bytes(pair);
+        return pair;
+    }
+
+    boolean isEmpty() {
+        return memory.isEmpty() && runs.isEmpty();
+    }
+
+    long size() {
+        return memory.size() + spilledLeft;
+    }
+
+    /**
+     * Number of sorted runs in the spill file
+     */
+    int runs() {
+        return runs.size();
+    }
+
+    /**
+     * Number of pairs written to the spill file so far
+     */
+    long spilled() {
+        return spilled;
+    }
+
+    /**
+     * Number of pairs that were stale when they would be spilled and were dropped
+     */
+    long dropped() {
+        return dropped;
+    }
+
+    /**
+     * Keep the best half of the pairs in memory and write the rest to the spill file as a sorted run
+     */
+    private void spill() {
+        IntRule.CriticalPair[] all = memory.toArray(new IntRule.CriticalPair[0]);
+        Arrays.sort(all, order);
+        int keep = all.length / 2;
+        memory = new PriorityQueue<>(Math.max(16, 2 * keep), order);
+        memoryBytes = 0;
+        for (int i = 0; i < keep; i++) {
+            memory.add(all[i]);
+            memoryBytes += bytes(all[i]);
+        }
+
+        try {
+            if (channel == null) {
+                file = Files.createTempFile("kbs-pairs", ".bin");
+                channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                        StandardOpenOption.DELETE_ON_CLOSE);
+            }
+            long start = fileSize;
+            ByteBuffer out = ByteBuffer.allocate(1 << 16);
+            for (int i = keep; i < all.length; i++) {
+                IntRule.CriticalPair pair = all[i];
+                if (pair.isStale()) {
+                    dropped++;
+                    continue;
+                }
+                pair.materialize();
+                out = put(out, pair);
+                spilled++;
+                spilledLeft++;
+            }
+            write(out);
+            addRun(new Run(start, fileSize));
+            if (runBytes > budget / 2 && runs.size() > 1) merge();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not spill critical pairs", e);
+        }
+    }
+
+    /**
+     * Read the next pair of the run and keep it if there is one
+     */
+    private void addRun(Run run) {
+        if (run.advance()) {
+            runs.add(run);
+            runBytes += run.bytes();
+        }
+    }
+
+    /**
+     * Merge every run into one, written to a new spill file that replaces the old one
+     */
+    private void merge() throws IOException {
+        FileChannel old = channel;
+        Path oldFile = file;
+        file = Files.createTempFile("kbs-pairs", ".bin");
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE);
+        fileSize = 0;
+
+        ByteBuffer out = ByteBuffer.allocate(1 << 16);
+        Run run;
+        while ((run = runs.poll()) != null) {
+            out = put(out, run.head);
+            if (run.advance()) runs.add(run);
+        }
+        write(out);
+        old.close();
+        Files.deleteIfExists(oldFile);
+        runBytes = 0;
+        addRun(new Run(0, fileSize));
+    }
+
+    /**
+     * Put the record of the pair in the buffer, what is in the buffer is written first if it does not fit
+     * @return the buffer, a bigger one if the record did not fit in an empty buffer
+     */
+    private ByteBuffer put(ByteBuffer out, IntRule.CriticalPair pair) throws IOException {
+        int recordSize = recordSize(pair);
+        if (out.remaining() < recordSize) {
+            write(out);
+            if (out.capacity() < recordSize) out = ByteBuffer.allocate(recordSize);
+        }
+        out.putLong(pair.sequence);
+        out.putInt(pair.overlap);
+        out.putInt(pair.length);
+        out.putInt(pair.to1.length);
+        out.putInt(pair.to2.length);
+        putWord(out, pair.to1);
+        putWord(out, pair.to2);
+        return out;
+    }
+
+    private int recordSize(IntRule.CriticalPair pair) {
+        return 24 + letterBytes * (pair.to1.length + pair.to2.length);
+    }
+
+    private void putWord(ByteBuffer out, int[] word) {
+        for (int c : word) {
+            if (letterBytes == 1) {
+                out.put((byte) c);
+            } else {
+                out.putInt(c);
+            }
+        }
+    }
+
+    private int[] getWord(ByteBuffer in, int length) {
+        int[] word = new int[length];
+        for (int i = 0; i < length; i++) {
+            word[i] = letterBytes == 1 ? in.get() & 0xFF : in.getInt();
+        }
+        return word;
+    }
+
+    private void write(ByteBuffer out) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            fileSize += channel.write(out, fileSize);
+        }
+        out.clear();
+    }
+
+    /**
+     * Delete the spill file
+     */
+    @Override
+    public void close() {
+        if (channel != null) {
+            try {
+                channel.close();
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                channel = null;
+            }
+        }
+    }
+
+    /**
+     * A sorted part of the spill file that is read from the start, head is the first unread pair
+     */
+    private class Run {
+        private final FileChannel source = channel;
+        private long position;
+        private final long end;
+        private ByteBuffer buffer = ByteBuffer.allocate(readBuffer);
+        IntRule.CriticalPair head;
+
+        Run(long start, long end) {
+            this.position = start;
+            this.end = end;
+            buffer.limit(0);
+        }
+
+        /**
+         * The memory the run takes besides the file
+         */
+        long bytes() {
+            return buffer.capacity() + (head != null ? PairQueue.bytes(head) : 0);
+        }
+
+        /**
+         * Read the next pair into head
+         * @return false if the run is done
+         */
+        boolean advance() {
+            try {
+                if (!fill(24)) {
+                    head = null;
+                    return false;
+                }
+                long sequence = buffer.getLong();
+                int overlap = buffer.getInt();
+                int length = buffer.getInt();
+                int length1 = buffer.getInt();
+                int length2 = buffer.getInt();
+                if (!fill(letterBytes * (length1 + length2))) throw new IOException("Spill file is too short");
+                int[] to1 = getWord(buffer, length1);
+                int[] to2 = getWord(buffer, length2);
+                head = new IntRule.CriticalPair(to1, to2, overlap, length);
+                head.sequence = sequence;
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read spilled critical pairs", e);
+            }
+        }
+
+        /**
+         * Make sure the buffer has the given number of bytes
+         * @return false if the run has no more bytes
+         */
+        private boolean fill(int needed) throws IOException {
+            if (buffer.remaining() >= needed) return true;
+            if (buffer.remaining() == 0 && position == end) return false;
+            if (buffer.capacity() < needed) {
+                ByteBuffer bigger = ByteBuffer.allocate(needed);
+                bigger.put(buffer);
+                buffer = bigger;
+            } else {
+                buffer.compact();
+            }
+            while (buffer.position() < needed) {
+                if (position == end) throw new IOException("Spill file is too short");
+                int limit = (int) Math.min(buffer.capacity(), buffer.position() + end - position);
+                buffer.limit(limit);
+                int read = source.read(buffer, position);
+                if (read < 0) throw new IOException("Spill file is too short");
+                position += read;
+            }
+            buffer.flip();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package kbs;
+
+import java.util.Arrays;
+
+/**
+ * Set of critical pairs of coded words, a pair and its mirror are the same pair.
+ *
+ * Pairs are stored larger side first, both words are copied into one int array and the open addressing table
+ * holds offsets in that array, so no objects are made per pair.
+ *
+ * The set only saves work, a pair that is handled twice gives nothing new the second time. So when it grows over
+ * its bound it is emptied instead of growing further, and the pairs after that are checked against a fresh set.
+ */
+class PairSet {
+    private static final int DATA = 1024, TABLE = 256;
+
+    private final long maxBytes;
+    private int[] data = new int[DATA];
+    private int used = 0;
+    private int[] table = new int[TABLE];   //offset + 1 in data, 0 is empty
+    private int[] hashes = new int[TABLE];
+    private int size = 0;
+    private int cleared = 0;
+
+    PairSet() {
+        this(Long.MAX_VALUE);
+    }
+
+    /**
+     * @param maxBytes memory of the arrays above which the set is emptied, it never gets smaller than the
+     *                 initial arrays
+     */
+    PairSet(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Add the pair
+     * @return true if the pair (or its mirror) was not in the set yet
+     */
+    boolean add(int[] to1, int[] to2) {
+        int[] big = Words.compare(to1, to2) >= 0 ? to1 : to2;
+        int[] small = big == to1 ? to2 : to1;
+        int hash = hash(big, small);
+
+        int mask = table.length - 1;
+        int i = hash & mask;
+        while (table[i] != 0) {
+            if (hashes[i] == hash && same(table[i] - 1, big, small)) return false;
+            i = (i + 1) & mask;
+        }
+
+        int offset = store(big, small);
+        table[i] = offset + 1;
+        hashes[i] = hash;
+        if (++size * 2 > table.length) grow();
+        if (bytes() > maxBytes && (data.length > DATA || table.length > TABLE)) clear();
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * The memory of the arrays, without the array headers
+     */
+    long bytes() {
+        return 4L * (data.length + table.length + hashes.length);
+    }
+
+    /**
+     * How often the set was emptied to stay within its bound
+     */
+    int cleared() {
+        return cleared;
+    }
+
+    private void clear() {
+        data = new int[DATA];
+        table = new int[TABLE];
+        hashes = new int[TABLE];
+        used = size = 0;
+        cleared++;
+    }
+
+    private static int hash(int[] big, int[] small) {
+        int hash = 31 * Arrays.hashCode(big) + Arrays.hashCode(small);
+        return hash ^ (hash >>> 16);
+    }
+
+    private boolean same(int offset, int[] big, int[] small) {
+        if (data[offset] != big.length || data[offset + 1] != small.length) return false;
+        int start = offset + 2;
+        for (int j = 0; j < big.length; j++) {
+            if (data[start + j] != big[j]) return false;
+        }
+        start += big.length;
+        for (int j = 0; j < small.length; j++) {
+            if (data[start + j] != small[j]) return false;
+        }
+        return true;
+    }
+
+    private int store(int[] big, int[] small) {
+        int needed = 2 + big.length + small.length;
+        if (used + needed > data.length) {
+            data = Arrays.copyOf(data, Math.max(2 * data.length, used + needed));
+        }
+        int offset = used;
+        data[used++] = big.length;
+        data[used++] = small.length;
+        System.arraycopy(big, 0, data, used, big.length);
+        used += big.length;
+        System.arraycopy(small, 0, data, used, small.length);
+        used += small.length;
+        return offset;
+    }
+
+    private void grow() {
+        int[] oldTable = table;
+        int[] oldHashes = hashes;
+        table = new int[2 * oldTable.length];
+        hashes = new int[2 * oldTable.length];
+        int mask = table.length - 1;
+        for (int j = 0; j < oldTable.length; j++) {
+            if (oldTable[j] == 0) continue;
+            int i = oldHashes[j] & mask;
+            while (table[i] != 0) i = (i + 1) & mask;
+            table[i] = oldTable[j];
+            hashes[i] = oldHashes[j];
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package kbs;
+
+import java.util.Comparator;
+
+/**
+ * The order in which {@link IntRewriteSystem#complete()} handles pending critical pairs.
+ * Every pair gets a sequence number when it is created, lower means older. The length of a pair is the length of
+ * its longest side, it is known before the words of the pair are made.
+ */
+public enum PairStrategy implements Comparator<IntRule.CriticalPair> {
+    /**
+     * Shortest pair first, oldest first on ties.
+     * Short pairs give short rules that often collapse the longer pairs before they are looked at.
+     */
+    SHORTEST {
+        @Override
+        public int compare(IntRule.CriticalPair o1, IntRule.CriticalPair o2) {
+            int diff = Integer.compare(o1.length, o2.length);
+            return diff != 0 ? diff : Long.compare(o1.sequence, o2.sequence);
+        }
+    },
+    /**
+     * Oldest pair first, every pair is handled in a fair order
+     */
+    OLDEST {
+        @Override
+        public int compare(IntRule.CriticalPair o1, IntRule.CriticalPair o2) {
+            return Long.compare(o1.sequence, o2.sequence);
+        }
+    },
+    /**
+     * Shortest first, but a pair gains one letter of priority for every {@link #AGE_STEP} newer pairs,
+     * so long pairs are not postponed forever
+     */
+    HYBRID {
+        @Override
+        public int compare(IntRule.CriticalPair o1, IntRule.CriticalPair o2) {
+            long weight1 = o1.length * AGE_STEP + o1.sequence;
+            long weight2 = o2.length * AGE_STEP + o2.sequence;
+            return weight1 != weight2 ? Long.compare(weight1, weight2) : Long.compare(o1.sequence, o2.sequence);
+        }
+    };
+
+    public static final long AGE_STEP = 64;
+}
@@ -0,0 +1,201 @@
+package kbs;
+
+import java.util.*;
+
+/**
+ * Aho-Corasick automaton over the "from" parts of a set of rules.
+ *
+ * A word is reduced in one left to right pass: the state after every letter of the output is kept on a stack,
+ * so after a replacement we only back up over the replaced letters and continue with the "to" part.
+ * The automaton itself is immutable. Rules that were removed after building are skipped ({@link IntRule#removed}),
+ * rules that were added after building can be passed as extra rules, these are checked with KMP
+ * once the automaton finds nothing.
+ */
+class ReductionAutomaton {
+    final int alphabetSize;
+    final int stateCount;
+    /** delta[state * alphabetSize + letter] is the next state */
+    final int[] delta;
+    /** index of the rule whose "from" part is exactly the path to the state, or -1 */
+    final int[] own;
+    /** nearest state on the failure chain (excluding the state itself) that has a rule, or -1 */
+    final int[] dict;
+    /** the rules, indexed like own */
+    final IntRule[] rules;
+
+    ReductionAutomaton(int alphabetSize, int stateCount, int[] delta, int[] own, int[] dict, IntRule[] rules) {
+        this.alphabetSize = alphabetSize;
+        this.stateCount = stateCount;
+        this.delta = delta;
+        this.own = own;
+        this.dict = dict;
+        this.rules = rules;
+    }
+
+    /**
+     * Build the automaton for the given rules. When two rules have the same "from" part the smallest "to" is used.
+     */
+    static ReductionAutomaton build(int alphabetSize, Collection<IntRule> ruleSet) {
+        IntRule[] rules = ruleSet.toArray(new IntRule[0]);
+        int maxStates = 1;
+        for (IntRule rule : rules) maxStates += rule.from.length;
+
+        int[] delta = new int[maxStates * alphabetSize];
+        Arrays.fill(delta, -1);
+        int[] own = new int[maxStates];
+        Arrays.fill(own, -1);
+
+        //The trie
+        int states = 1;
+        for (int r = 0; r < rules.length; r++) {
+            int state = 0;
+            for (int c : rules[r].from) {
+                int next = delta[state * alphabetSize + c];
+                if (next < 0) {
+                    next = states++;
+                    delta[state * alphabetSize + c] = next;
+                }
+                state = next;
+            }
+            if (own[state] < 0 || Words.compare(rules[r].to, rules[own[state]].to) < 0) {
+                own[state] = r;
+            }
+        }
+
+        //Failure links in breadth first order, missing transitions follow the failure link
+        int[] fail = new int[states];
+        int[] dict = new int[states];
+        int[] queue = new int[states];
+        int head = 0, tail = 0;
+        dict[0] = -1;
+        for (int c = 0; c < alphabetSize; c++) {
+            int next = delta[c];
+            if (next < 0) {
+                delta[c] = 0;
+            } else {
+                fail[next] = 0;
+                dict[next] = -1;
+                queue[tail++] = next;
+            }
+        }
+        while (head < tail) {
+            int state = queue[head++];
+            for (int c = 0; c < alphabetSize; c++) {
+                int index = state * alphabetSize + c;
+                int next = delta[index];
+                int viaFail = delta[fail[state] * alphabetSize + c];
+                if (next < 0) {
+                    delta[index] = viaFail;
+                } else {
+                    fail[next] = viaFail;
+                    dict[next] = own[viaFail] >= 0 ? viaFail : dict[viaFail];
+                    queue[tail++] = next;
+                }
+            }
+        }
+
+        return new ReductionAutomaton(alphabetSize, states,
+                Arrays.copyOf(delta, states * alphabetSize), Arrays.copyOf(own, states), dict, rules);
+    }
+
+    int ruleCount() {
+        return rules.length;
+    }
+
+    /**
+     * Find a rule that is not removed whose "from" part is a suffix of the path to the state
+     * @return the rule or null
+     */
+    IntRule matchAt(int state) {
+        int t = own[state] >= 0 ? state : dict[state];
+        while (t >= 0) {
+            IntRule rule = rules[own[t]];
+            if (!rule.removed) return rule;
+            t = dict[t];
+        }
+        return null;
+    }
+
+    int next(int state, int letter) {
+        return delta[state * alphabetSize + letter];
+    }
+
+    /**
+     * Reduce word[0..length) until no rule of the automaton or extra rule applies.
+     * @param extra  rules that are not in the automaton, may be empty
+     * @param buffer scratch space, the result is in buffer.out
+     * @return the length of the result
+     */
+    int reduce(int[] word, int length, List<IntRule> extra, ReductionBuffer buffer) {
+        return reduce(word, 0, length, extra, buffer);
+    }
+
+    /**
+     * Reduce word[offset..offset+length), see {@link #reduce(int[], int, List, ReductionBuffer)}
+     */
+    int reduce(int[] word, int offset, int length, List<IntRule> extra, ReductionBuffer buffer) {
+        buffer.ensure(length);
+        int[] out = buffer.out;
+        int[] states = buffer.states;
+        int[] pending = buffer.pending;
+
+        //pending is a stack, the next letter is on top
+        int top = 0;
+        for (int i = offset + length - 1; i >= offset; i--) pending[top++] = word[i];
+        int len = 0;
+        states[0] = 0;
+
+        while (true) {
+            while (top > 0) {
+                int c = pending[--top];
+                int state = delta[states[len] * alphabetSize + c];
+                out[len++] = c;
+                states[len] = state;
+                IntRule rule = own[state] < 0 && dict[state] < 0 ? null : matchAt(state);
+                if (rule != null) {
+                    //back up over the from part and continue with the to part
+                    len -= rule.from.length;
+                    for (int i = rule.to.length - 1; i >= 0; i--) pending[top++] = rule.to[i];
+                }
+            }
+
+            //Irreducible for the automaton, look for the first occurrence of an extra rule
+            if (extra.isEmpty()) return len;
+            IntRule first = null;
+            int firstPos = len;
+            for (IntRule rule : extra) {
+                if (rule.removed) continue;
+                int pos = rule.indexIn(out, len);
+                if (pos >= 0 && pos < firstPos) {
+                    first = rule;
+                    firstPos = pos;
+                }
+            }
+            if (first == null) return len;
+
+            //the states of out[0..firstPos) are still valid, the rest has to be read again
+            for (int i = len - 1; i >= firstPos + first.from.length; i--) pending[top++] = out[i];
+            for (int i = first.to.length - 1; i >= 0; i--) pending[top++] = first.to[i];
+            len = firstPos;
+        }
+    }
+
+    /**
+     * Scratch space for {@link #reduce}, one per thread.
+     * Rules never make words longer so everything fits in arrays of the input length.
+     */
+    static class ReductionBuffer {
+        int[] out = new int[16];
+        int[] states = new int[17];
+        int[] pending = new int[16];
+
+        void ensure(int length) {
+            if (out.length < length) {
+                int size = Math.max(length, 2 * out.length);
+                out = new int[size];
+                states = new int[size + 1];
+                pending = new int[size];
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package kbs;
+
+import java.util.*;
+
+/**
+ * Bounded memo of words and their normal forms for a complete system, see
+ * {@link IntRewriteSystem#setReductionCache(long)}.
+ *
+ * The words are kept in least recently used order, like the systems of {@link CompletionCache}, but the bound is an
+ * estimate of the memory they take instead of a number of entries. Lookups can be done on a part of an array
+ * without making a key. The hits and misses are counted, so one can check that the words do repeat often enough to
+ * pay for the hashing. The cache can be used from several threads.
+ */
+public final class ReductionCache {
+    /** estimate of the bytes of an entry besides the letters: map entry, key and two array headers */
+    static final int ENTRY_BYTES = 96;
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, int[]> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final Key probe = new Key();
+    private long bytes = 0;
+    private long hits = 0, misses = 0, evictions = 0;
+
+    /**
+     * @param maxBytes the most memory (estimated) the words and normal forms may take
+     */
+    public ReductionCache(long maxBytes) {
+        if (maxBytes < 1) throw new IllegalArgumentException("The cache needs at least one byte");
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Word word[offset..offset+length) as a key, the stored keys have their own array
+     */
+    private static final class Key {
+        int[] word;
+        int offset, length, hash;
+
+        Key set(int[] word, int offset, int length) {
+            this.word = word;
+            this.offset = offset;
+            this.length = length;
+            int h = 1;
+            for (int i = offset; i < offset + length; i++) h = 31 * h + word[i];
+            this.hash = h;
+            return this;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            if (hash != other.hash || length != other.length) return false;
+            for (int i = 0; i < length; i++) {
+                if (word[offset + i] != other.word[other.offset + i]) return false;
+            }
+            return true;
+        }
+    }
+
+    private static long bytes(int wordLength, int normalFormLength) {
+        return ENTRY_BYTES + 4L * (wordLength + normalFormLength);
+    }
+
+    /**
+     * Look up the normal form of word[offset..offset+length) and copy it to target[targetOffset..]
+     * (that may be the word itself, the normal form is never longer)
+     * @return the length of the normal form, -1 if the word is not in the cache
+     */
+    public synchronized int get(int[] word, int offset, int length, int[] target, int targetOffset) {
+        int[] normalForm = memory.get(probe.set(word, offset, length));
+        probe.word = null;
+        if (normalForm == null) {
+            misses++;
+            return -1;
+        }
+        hits++;
+        System.arraycopy(normalForm, 0, target, targetOffset, normalForm.length);
+        return normalForm.length;
+    }
+
+    /**
+     * @return a copy of the normal form of the word, null if it is not in the cache
+     */
+    public int[] get(int[] word) {
+        int[] normalForm = new int[word.length];
+        int length = get(word, 0, word.length, normalForm, 0);
+        return length < 0 ? null : Arrays.copyOf(normalForm, length);
+    }
+
+    /**
+     * Remember that normalForm[nfOffset..nfOffset+nfLength) is the normal form of word[offset..offset+length),
+     * both are copied. The least recently used words are dropped until it fits, a pair bigger than the whole
+     * cache is not kept.
+     */
+    public synchronized void put(int[] word, int offset, int length, int[] normalForm, int nfOffset, int nfLength) {
+        long size = bytes(length, nfLength);
+        if (size > maxBytes) return;
+        Key key = new Key().set(Arrays.copyOfRange(word, offset, offset + length), 0, length);
+        int[] old = memory.put(key, Arrays.copyOfRange(normalForm, nfOffset, nfOffset + nfLength));
+        bytes += old == null ? size : size - bytes(length, old.length);
+
+        Iterator<Map.Entry<Key, int[]>> eldest = memory.entrySet().iterator();
+        while (bytes > maxBytes) {
+            Map.Entry<Key, int[]> entry = eldest.next();
+            bytes -= bytes(entry.getKey().length, entry.getValue().length);
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    public void put(int[] word, int[] normalForm) {
+        put(word, 0, word.length, normalForm, 0, normalForm.length);
+    }
+
+    public synchronized void clear() {
+        memory.clear();
+        bytes = 0;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * The estimated memory of the cached words and normal forms
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized int size() {
+        return memory.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * The number of words dropped to stay within the bound
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * hits / lookups, 0 before the first lookup
+     */
+    public synchronized double getHitRate() {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d hits, %d misses (%.1f%%), %d words in %d bytes, %d evicted",
+                hits, misses, 100 * getHitRate(), memory.size(), bytes, evictions);
+    }
+}
@@ -2,6 +2,7 @@ package kbs;
 
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import java.util.stream.Collectors;
 
 /**
@@ -101,6 +102,8 @@ public class RewriteSystem<T> {
      * useful because we choose to always apply the new rule first.
      *
      * This is the "Knuth–Bendix completion algorithm"
+     *
+     * @throws CancellationException if the thread is interrupted, the system stays incomplete
      */
     public void complete() {
         if(completeRules != null) {
@@ -116,6 +119,11 @@ public class RewriteSystem<T> {
 
         Collection<Rule<T>> toProcess = new HashSet<>(completeRules);
         while (true){
+            if (Thread.currentThread().isInterrupted()) {
+                //completeRules is the working set, it must not look complete
+                this.completeRules = null;
+                throw new CancellationException("The completion was interrupted");
+            }
 
             //Collect the critical pairs
             for (Rule<T> rule1 : completeRules) {
@@ -184,6 +192,7 @@ public class RewriteSystem<T> {
      *
      * @return a set of unique normal forms to which every input containing only letters that occur in the rules
      * will be reduced to using {@see getUniqueNF()}
+     * @throws CancellationException if the thread is interrupted
      */
     public Set<List<T>> calcNormalForms(){
         complete();
@@ -203,6 +212,9 @@ public class RewriteSystem<T> {
         Set<List<T>> newSuggestions = new HashSet<>();
 
         while (suggestion.size() > 0) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("The enumeration was interrupted");
+            }
             newSuggestions.clear();
             for (List<T> sugestion : suggestion) {
                 List<T> clean = this.getUniqueNF(sugestion);
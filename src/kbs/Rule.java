@@ -266,6 +266,18 @@ public class Rule<T>  {
         }
 
 
+        /**
+         * Pairs are equal if they have the same sides, in any order (matches hashCode)
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Rule<?>.CriticalPair pair = (Rule<?>.CriticalPair) o;
+            return to1.equals(pair.to1) && to2.equals(pair.to2) || to1.equals(pair.to2) && to2.equals(pair.to1);
+        }
+
         @Override
         public int hashCode() {
             return to1.hashCode() + to2.hashCode();
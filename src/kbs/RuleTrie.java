@@ -0,0 +1,127 @@
+package kbs;
+
+import java.util.*;
+
+/**
+ * Trie of words with the rules that end in every node and the number of rules below every node.
+ * A node is cut off as soon as there is no rule below it any more, its nodes go on a free list and are used again,
+ * so the trie does not keep growing while the completion adds and removes rules.
+ */
+class RuleTrie {
+    private final int alphabetSize;
+    private int[] children;
+    private int[] below;
+    private List<List<IntRule>> ending = new ArrayList<>();
+    private int nodes = 1;
+    private int[] free = new int[16];
+    private int freeCount = 0;
+
+    RuleTrie(int alphabetSize) {
+        this.alphabetSize = alphabetSize;
+        this.children = new int[64 * alphabetSize];
+        this.below = new int[64];
+        ending.add(null);
+    }
+
+    private static int letter(int[] word, int from, int to, int i, boolean reversed) {
+        return reversed ? word[to - 1 - i + from] : word[i];
+    }
+
+    /**
+     * Add the rule at the end of word[from..to), read backwards if reversed
+     */
+    void add(int[] word, int from, int to, boolean reversed, IntRule rule) {
+        int node = 0;
+        below[0]++;
+        for (int i = from; i < to; i++) {
+            int index = node * alphabetSize + letter(word, from, to, i, reversed);
+            if (children[index] == 0) {
+                int child = newNode(); //may grow children
+                children[index] = child;
+            }
+            node = children[index];
+            below[node]++;
+        }
+        if (ending.get(node) == null) ending.set(node, new ArrayList<>(1));
+        ending.get(node).add(rule);
+    }
+
+    private int newNode() {
+        if (freeCount > 0) return free[--freeCount];
+        if (nodes == below.length) {
+            below = Arrays.copyOf(below, 2 * nodes);
+            children = Arrays.copyOf(children, 2 * nodes * alphabetSize);
+        }
+        ending.add(null);
+        return nodes++;
+    }
+
+    /**
+     * Remove the rule at the end of word[from..to), nothing happens if it is not there
+     */
+    void remove(int[] word, int from, int to, boolean reversed, IntRule rule) {
+        int end = walk(word, from, to, reversed);
+        if (end < 0 || ending.get(end) == null || !ending.get(end).remove(rule)) return;
+        int node = 0;
+        below[0]--;
+        for (int i = from; i < to; i++) {
+            int index = node * alphabetSize + letter(word, from, to, i, reversed);
+            node = children[index];
+            if (--below[node] == 0) {
+                //nothing left below, the rest of the path only has this rule
+                children[index] = 0;
+                release(node);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Put the node and the nodes below it on the free list, they have no rules any more
+     */
+    private void release(int node) {
+        for (int c = 0; c < alphabetSize; c++) {
+            int child = children[node * alphabetSize + c];
+            if (child != 0) {
+                children[node * alphabetSize + c] = 0;
+                release(child);
+            }
+        }
+        below[node] = 0;
+        ending.set(node, null);
+        if (freeCount == free.length) free = Arrays.copyOf(free, 2 * freeCount);
+        free[freeCount++] = node;
+    }
+
+    /**
+     * The number of nodes in use, the root included
+     */
+    int size() {
+        return nodes - freeCount;
+    }
+
+    /**
+     * Walk word[from..to), backwards if reversed
+     * @return the node or -1 if there is no rule below it
+     */
+    int walk(int[] word, int from, int to, boolean reversed) {
+        int node = 0;
+        for (int i = from; i < to; i++) {
+            node = children[node * alphabetSize + letter(word, from, to, i, reversed)];
+            if (node == 0 || below[node] == 0) return -1;
+        }
+        return node;
+    }
+
+    /**
+     * Add every rule at or below the node
+     */
+    void collect(int node, Collection<IntRule> result) {
+        if (below[node] == 0) return;
+        if (ending.get(node) != null) result.addAll(ending.get(node));
+        for (int c = 0; c < alphabetSize; c++) {
+            int child = children[node * alphabetSize + c];
+            if (child != 0) collect(child, result);
+        }
+    }
+}
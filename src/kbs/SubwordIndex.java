@@ -0,0 +1,52 @@
+package kbs;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Index of one side of a set of rules to find the rules of which that side contains a given word.
+ *
+ * Every suffix of the indexed side is put in a trie, a word is a subword of the side if it is a prefix of
+ * one of those suffixes. So the rules containing a word are the rules below the node where the word ends,
+ * finding them costs the length of the word plus the size of that part of the trie, not a scan of every rule.
+ */
+class SubwordIndex {
+    private final RuleTrie suffixes;
+    private final Function<IntRule, int[]> side;
+
+    /**
+     * @param side the side of the rules that is indexed, e.g. {@code rule -> rule.from}
+     */
+    SubwordIndex(int alphabetSize, Function<IntRule, int[]> side) {
+        this.suffixes = new RuleTrie(alphabetSize);
+        this.side = side;
+    }
+
+    void add(IntRule rule) {
+        int[] word = side.apply(rule);
+        for (int start = 0; start < word.length; start++) {
+            suffixes.add(word, start, word.length, false, rule);
+        }
+    }
+
+    /**
+     * Remove a rule, nothing happens if the rule is not in the index
+     */
+    void remove(IntRule rule) {
+        int[] word = side.apply(rule);
+        for (int start = 0; start < word.length; start++) {
+            suffixes.remove(word, start, word.length, false, rule);
+        }
+    }
+
+    /**
+     * Get the rules of which the indexed side contains the word
+     * @return the rules in rule order, every rule once
+     */
+    SortedSet<IntRule> containing(int[] word) {
+        SortedSet<IntRule> result = new TreeSet<>();
+        int node = suffixes.walk(word, 0, word.length, false);
+        if (node >= 0) suffixes.collect(node, result);
+        return result;
+    }
+}
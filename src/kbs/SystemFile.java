@@ -0,0 +1,172 @@
+package kbs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Binary file of a completed {@link IntRewriteSystem}, see {@link IntRewriteSystem#save(Path, Alphabet)}.
+ *
+ * Layout (big endian ints): magic "KBSR", version, ordering (0 = shortlex on the codes), alphabet size,
+ * number of letter names with every name as length + UTF-8 bytes, number of rules with every rule as
+ * from length, to length, from codes, to codes, and a flag for the reduction automaton followed by its state count,
+ * transitions, own and dict tables. The rules are stored in the order the automaton refers to them.
+ * The file is memory mapped when it is read, the tables are copied out of the mapping in bulk.
+ */
+class SystemFile {
+    private static final int MAGIC = 0x4B425352; //"KBSR"
+    static final int VERSION = 1;
+    private static final int SHORTLEX = 0;
+
+    private SystemFile() {
+    }
+
+    static void write(Path file, int alphabetSize, List<String> letters, IntRule[] rules,
+                      ReductionAutomaton automaton) throws IOException {
+        long size = 7 * 4; //header, counts and the automaton flag
+        List<byte[]> names = new ArrayList<>();
+        for (String letter : letters) {
+            byte[] name = letter.getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            size += 4 + name.length;
+        }
+        for (IntRule rule : rules) size += 4L * (2 + rule.from.length + rule.to.length);
+        if (automaton != null) size += 4L * (1 + automaton.delta.length + 2 * automaton.stateCount);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.READ, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putInt(SHORTLEX);
+            out.putInt(alphabetSize);
+            out.putInt(names.size());
+            for (byte[] name : names) {
+                out.putInt(name.length);
+                out.put(name);
+            }
+            out.putInt(rules.length);
+            IntBuffer ints = out.asIntBuffer();
+            for (IntRule rule : rules) {
+                ints.put(rule.from.length);
+                ints.put(rule.to.length);
+                ints.put(rule.from);
+                ints.put(rule.to);
+            }
+            if (automaton == null) {
+                ints.put(0);
+            } else {
+                ints.put(1);
+                ints.put(automaton.stateCount);
+                ints.put(automaton.delta);
+                ints.put(automaton.own);
+                ints.put(automaton.dict);
+            }
+            out.force();
+        }
+    }
+
+    /**
+     * The contents of a file
+     */
+    static class Contents {
+        int alphabetSize;
+        List<String> letters = new ArrayList<>();
+        IntRule[] rules;
+        ReductionAutomaton automaton; //null if it was not stored
+    }
+
+    static Contents read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            try {
+                return read(in);
+            } catch (RuntimeException e) {
+                throw new IOException("Broken rewrite system file: " + file, e);
+            }
+        }
+    }
+
+    private static Contents read(ByteBuffer in) throws IOException {
+        if (in.remaining() < 24 || in.getInt() != MAGIC) {
+            throw new IOException("Not a rewrite system file");
+        }
+        int version = in.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported rewrite system file version: " + version);
+        }
+        int ordering = in.getInt();
+        if (ordering != SHORTLEX) {
+            throw new IOException("Unsupported ordering: " + ordering);
+        }
+
+        Contents contents = new Contents();
+        contents.alphabetSize = size(in.getInt(), 0, 0);
+        int letterCount = size(in.getInt(), 4, in.remaining());
+        for (int i = 0; i < letterCount; i++) {
+            byte[] name = new byte[size(in.getInt(), 1, in.remaining())];
+            in.get(name);
+            contents.letters.add(new String(name, StandardCharsets.UTF_8));
+        }
+
+        contents.rules = new IntRule[size(in.getInt(), 8, in.remaining())];
+        IntBuffer ints = in.asIntBuffer();
+        for (int r = 0; r < contents.rules.length; r++) {
+            int[] from = new int[size(ints.get(), 1, ints.remaining())];
+            int[] to = new int[size(ints.get(), 1, ints.remaining() - from.length)];
+            ints.get(from);
+            ints.get(to);
+            check(from, contents.alphabetSize);
+            check(to, contents.alphabetSize);
+            contents.rules[r] = new IntRule(from, to);
+        }
+        if (ints.get() != 0) {
+            int states = size(ints.get(), 2L + contents.alphabetSize, ints.remaining());
+            int[] delta = new int[states * contents.alphabetSize];
+            int[] own = new int[states];
+            int[] dict = new int[states];
+            ints.get(delta);
+            ints.get(own);
+            ints.get(dict);
+            check(delta, states);
+            for (int i = 0; i < states; i++) {
+                if (own[i] < -1 || own[i] >= contents.rules.length || dict[i] < -1 || dict[i] >= states) {
+                    throw new IOException("Broken reduction automaton");
+                }
+            }
+            contents.automaton = new ReductionAutomaton(contents.alphabetSize, states, delta, own, dict,
+                    contents.rules);
+        }
+        return contents;
+    }
+
+    /**
+     * Check a count read from the file before an array is made for it
+     * @param width the room every element takes in the rest of the file
+     * @param remaining the room left in the file, in the same unit as width
+     * @return the count
+     */
+    private static int size(int count, long width, int remaining) throws IOException {
+        if (count < 0 || count * width > remaining) {
+            throw new IOException("Size out of range: " + count);
+        }
+        return count;
+    }
+
+    /**
+     * Check that every value is in 0..bound-1
+     */
+    private static void check(int[] values, int bound) throws IOException {
+        for (int value : values) {
+            if (value < 0 || value >= bound) {
+                throw new IOException("Value out of range: " + value);
+            }
+        }
+    }
+}
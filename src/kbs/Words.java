@@ -0,0 +1,52 @@
+package kbs;
+
+/**
+ * Helpers for words that are stored as arrays of letter codes (see {@link Alphabet}).
+ * The order used everywhere in the int coded engine is shortlex on the codes.
+ */
+public final class Words {
+
+    private Words() {
+    }
+
+    /**
+     * Shortlex comparison of two coded words
+     * @return negative, zero or positive like {@link java.util.Comparator#compare}
+     */
+    public static int compare(int[] a, int[] b) {
+        return compare(a, a.length, b, b.length);
+    }
+
+    /**
+     * Shortlex comparison of the first {@code aLength} codes of a and the first {@code bLength} codes of b
+     */
+    public static int compare(int[] a, int aLength, int[] b, int bLength) {
+        if (aLength != bLength) return aLength - bLength;
+        for (int i = 0; i < aLength; i++) {
+            if (a[i] != b[i]) return a[i] < b[i] ? -1 : 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Concatenate parts of words into a new array
+     * @return a[aFrom..aTo) + b[bFrom..bTo)
+     */
+    static int[] concat(int[] a, int aFrom, int aTo, int[] b, int bFrom, int bTo) {
+        int[] result = new int[aTo - aFrom + bTo - bFrom];
+        System.arraycopy(a, aFrom, result, 0, aTo - aFrom);
+        System.arraycopy(b, bFrom, result, aTo - aFrom, bTo - bFrom);
+        return result;
+    }
+
+    /**
+     * Readable form of a coded word, letters are shown as 'a' + code
+     */
+    public static String toString(int[] word) {
+        StringBuilder builder = new StringBuilder(word.length);
+        for (int c : word) {
+            builder.append((char) ('a' + c));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,279 @@
+package parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.text.ParseException;
+import java.util.*;
+
+/**
+ * Reads a whole presentation file straight into int coded words (a {@link Presentation}).
+ * <p>
+ * The syntax is the one of {@link Parser}, one relation per line, empty lines and lines starting with # are
+ * skipped and a carriage return before the end of a line is ignored. The input is read through a char buffer and
+ * the words are built in int arrays, there is no object per letter. Powers are made by repeated squaring and every
+ * concatenation cancels x x^-1 where the words meet, so (ab^3)^5000 costs a few concatenations and
+ * (ab)^1000(b'a')^1000 is empty as soon as it is read.
+ * </p>
+ */
+public class FastParser {
+    private int maxWordLength = 1 << 26;
+
+    //input
+    private Reader in;
+    private final char[] buffer = new char[1 << 13];
+    private int pos, limit;
+    private int line, column;
+
+    //letters that occur, words are coded with the letter itself (2 * char + inverted) until the end
+    private boolean[] used;
+
+    /**
+     * The longest word (in letters) a side may be, also while it is built
+     */
+    public void setMaxWordLength(int maxWordLength) {
+        if (maxWordLength < 1) throw new IllegalArgumentException("The maximum word length must be positive");
+        this.maxWordLength = maxWordLength;
+    }
+
+    public int getMaxWordLength() {
+        return maxWordLength;
+    }
+
+    public Presentation parse(String text) throws ParseException {
+        try {
+            return parse(new StringReader(text));
+        } catch (IOException e) {
+            throw new IllegalStateException(e); //a string can be read
+        }
+    }
+
+    /**
+     * Read the relations until the end of the reader (the reader is not closed)
+     * @throws ParseException if a line does not have the correct syntax, the message has the line number and the
+     *                        offset is the column
+     */
+    public Presentation parse(Reader reader) throws IOException, ParseException {
+        in = reader;
+        pos = limit = 0;
+        line = 1;
+        column = 0;
+        used = new boolean[Character.MAX_VALUE + 1];
+        List<int[]> left = new ArrayList<>();
+        List<int[]> right = new ArrayList<>();
+
+        while (peek() >= 0) {
+            int c = peek();
+            if (c == '#') {
+                while (peek() >= 0 && peek() != '\n') next();
+            } else if (c != '\n' && c != '\r') {
+                left.add(expression().toArray());
+                if (peek() == '=') {
+                    next();
+                    if (peek() == '1') {
+                        next();
+                        right.add(new int[0]);
+                    } else {
+                        right.add(expression().toArray());
+                    }
+                } else {
+                    right.add(new int[0]);
+                }
+                if (peek() == '\r') next();
+                if (peek() >= 0 && peek() != '\n') throw error("Premature end of line");
+            }
+            if (peek() == '\r') next();
+            if (peek() == '\n') {
+                next();
+                line++;
+                column = 0;
+            }
+        }
+
+        //code the letters by their rank
+        int count = 0;
+        for (boolean u : used) if (u) count++;
+        char[] letters = new char[count];
+        int[] rank = new int[used.length];
+        count = 0;
+        for (int c = 0; c < used.length; c++) {
+            if (used[c]) {
+                rank[c] = count;
+                letters[count++] = (char) c;
+            }
+        }
+        used = null;
+        int[][] l = recode(left, rank);
+        int[][] r = recode(right, rank);
+        return new Presentation(letters, l, r);
+    }
+
+    private static int[][] recode(List<int[]> words, int[] rank) {
+        int[][] result = words.toArray(new int[0][]);
+        for (int[] word : result) {
+            for (int i = 0; i < word.length; i++) word[i] = 2 * rank[word[i] >> 1] | (word[i] & 1);
+        }
+        return result;
+    }
+
+    // INPUT
+    // =====
+
+    private int peek() throws IOException {
+        if (pos == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            pos = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[pos];
+    }
+
+    private void next() {
+        pos++;
+        column++;
+    }
+
+    private ParseException error(String message) {
+        return new ParseException("line " + line + ": " + message, column);
+    }
+
+    // PARSER
+    // ======
+
+    /**
+     * Parses factors until the end of the line, '=' or ')'
+     */
+    private Word expression() throws IOException, ParseException {
+        Word result = new Word();
+        int c = peek();
+        if (c < 0 || c == '\n' || c == '\r' || c == '=' || c == ')') throw error("Start of expression expected");
+        while (c >= 0 && c != '\n' && c != '\r' && c != '=' && c != ')') {
+            if (c == '(') {
+                next();
+                Word inner = expression();
+                if (peek() != ')') throw error("')' expected");
+                next();
+                int exponent = exponent();
+                if (exponent < 0) {
+                    inner = inner.inverse();
+                    exponent = -exponent;
+                }
+                result.append(power(inner, exponent));
+            } else {
+                if (!Character.isLetter(c)) throw error("Letter expected");
+                next();
+                used[c] = true;
+                int x = 2 * c;
+                if (peek() == '\'') {
+                    next();
+                    x ^= 1;
+                }
+                int exponent = exponent();
+                if (exponent < 0) {
+                    x ^= 1;
+                    exponent = -exponent;
+                }
+                result.append(x, exponent);
+            }
+            c = peek();
+        }
+        return result;
+    }
+
+    /**
+     * Parses an optional exponent
+     * @return the exponent, 1 if there is none
+     */
+    private int exponent() throws IOException, ParseException {
+        if (peek() != '^') return 1;
+        next();
+        boolean negative = peek() == '-';
+        if (negative) next();
+        long value = 0;
+        int digits = 0;
+        while (peek() >= '0' && peek() <= '9') {
+            value = 10 * value + (peek() - '0');
+            if (value > Integer.MAX_VALUE) throw error("Exponent too large");
+            next();
+            digits++;
+        }
+        if (digits == 0) throw error("Number expected");
+        if (value == 0) throw error("Zero exponent not allowed");
+        return (int) (negative ? -value : value);
+    }
+
+    /**
+     * word^exponent by repeated squaring, exponent is positive
+     */
+    private Word power(Word word, int exponent) throws ParseException {
+        Word result = new Word();
+        Word square = word;
+        while (true) {
+            if ((exponent & 1) != 0) result.append(square);
+            exponent >>>= 1;
+            if (exponent == 0) return result;
+            Word next = square.copy();
+            next.append(square);
+            square = next;
+        }
+    }
+
+    /**
+     * Freely reduced word that grows
+     */
+    private final class Word {
+        private int[] letters = new int[16];
+        private int length = 0;
+
+        private void ensure(long size) throws ParseException {
+            if (size > maxWordLength) throw error("Word longer than " + maxWordLength + " letters");
+            if (size > letters.length) letters = Arrays.copyOf(letters, (int) Math.max(size, 2L * letters.length));
+        }
+
+        /**
+         * Append count times the letter x
+         */
+        void append(int x, int count) throws ParseException {
+            while (count > 0 && length > 0 && letters[length - 1] == (x ^ 1)) {
+                length--;
+                count--;
+            }
+            ensure((long) length + count);
+            Arrays.fill(letters, length, length + count, x);
+            length += count;
+        }
+
+        void append(Word word) throws ParseException {
+            int start = 0;
+            while (start < word.length && length > 0 && letters[length - 1] == (word.letters[start] ^ 1)) {
+                length--;
+                start++;
+            }
+            ensure((long) length + word.length - start);
+            System.arraycopy(word.letters, start, letters, length, word.length - start);
+            length += word.length - start;
+        }
+
+        Word copy() {
+            Word copy = new Word();
+            copy.letters = Arrays.copyOf(letters, Math.max(16, length));
+            copy.length = length;
+            return copy;
+        }
+
+        Word inverse() {
+            Word inverse = new Word();
+            inverse.letters = new int[Math.max(16, length)];
+            for (int i = 0; i < length; i++) inverse.letters[i] = letters[length - 1 - i] ^ 1;
+            inverse.length = length;
+            return inverse;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(letters, length);
+        }
+    }
+}
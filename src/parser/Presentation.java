@@ -0,0 +1,97 @@
+package parser;
+
+import java.util.*;
+
+/**
+ * Relations of a group presentation as int coded words, made by {@link FastParser}.
+ * <p>
+ * Letter i of {@link #getLetters()} (sorted) is coded as 2i and its inverse as 2i+1, so the inverse of a code x
+ * is x ^ 1 and the letter is x / 2. Every side is freely reduced.
+ * </p>
+ */
+public class Presentation {
+    private final char[] letters;
+    private final int[][] left;
+    private final int[][] right;
+
+    Presentation(char[] letters, int[][] left, int[][] right) {
+        this.letters = letters;
+        this.left = left;
+        this.right = right;
+    }
+
+    /**
+     * Convert the result of the {@link Parser}
+     */
+    public static Presentation of(List<Parser.Result> list) {
+        TreeSet<Character> sorted = new TreeSet<>();
+        list.forEach(r -> {
+            r.left.forEach(e -> sorted.add(e.ch));
+            r.right.forEach(e -> sorted.add(e.ch));
+        });
+        char[] letters = new char[sorted.size()];
+        int i = 0;
+        for (char c : sorted) letters[i++] = c;
+
+        int[][] left = new int[list.size()][];
+        int[][] right = new int[list.size()][];
+        for (int r = 0; r < list.size(); r++) {
+            left[r] = code(list.get(r).left, letters);
+            right[r] = code(list.get(r).right, letters);
+        }
+        return new Presentation(letters, left, right);
+    }
+
+    private static int[] code(List<Parser.Element> elements, char[] letters) {
+        int[] word = new int[elements.size()];
+        int i = 0;
+        for (Parser.Element e : elements) {
+            word[i++] = 2 * Arrays.binarySearch(letters, e.ch) + (e.inverted ? 1 : 0);
+        }
+        return word;
+    }
+
+    /**
+     * The letters in the relations, sorted
+     */
+    public char[] getLetters() {
+        return letters.clone();
+    }
+
+    /**
+     * The number of relations
+     */
+    public int size() {
+        return left.length;
+    }
+
+    public int[] getLeft(int relation) {
+        return left[relation].clone();
+    }
+
+    public int[] getRight(int relation) {
+        return right[relation].clone();
+    }
+
+    /**
+     * The relators left right^-1 of all relations, freely reduced
+     */
+    public int[][] relators() {
+        int[][] relators = new int[left.length][];
+        for (int r = 0; r < left.length; r++) {
+            int[] word = new int[left[r].length + right[r].length];
+            int length = 0;
+            for (int x : left[r]) word[length++] = x;
+            for (int i = right[r].length - 1; i >= 0; i--) {
+                int x = right[r][i] ^ 1;
+                if (length > 0 && word[length - 1] == (x ^ 1)) {
+                    length--;
+                } else {
+                    word[length++] = x;
+                }
+            }
+            relators[r] = Arrays.copyOf(word, length);
+        }
+        return relators;
+    }
+}
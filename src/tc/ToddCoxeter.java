@@ -0,0 +1,512 @@
+package tc;
+
+import java.util.*;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Todd-Coxeter coset enumeration: the index of a subgroup in a finitely presented group, by default the order of
+ * the group (the index of the trivial subgroup).
+ *
+ * Letters are coded as columns of the coset table, generator g is column 2g and its inverse 2g+1 (see {@link #letter}),
+ * so the inverse of column x is x ^ 1. The table is one flat int array, table[coset * columns + x] is the coset
+ * reached from coset by letter x, or -1 if that is not known yet.
+ *
+ * Two strategies are available:
+ * <ul>
+ *     <li>HLT: every coset in order, every relator is traced from it and the gaps are filled with new cosets</li>
+ *     <li>Felsch: the first open entry of the table is filled and all consequences are deduced before the next</li>
+ * </ul>
+ * Cosets that turn out to be the same are merged, the dead cosets are removed from the table by compaction
+ * when it is full. The table never has more than {@link #setMaxCosets max cosets} rows.
+ */
+public class ToddCoxeter {
+
+    public enum Strategy {
+        HLT, FELSCH
+    }
+
+    private final int columns;
+    private final int[][] relators;
+    private final int[][] subgroup;
+    /** cyclic conjugates of the relators and their inverses, by first letter (for Felsch) */
+    private final int[][][] conjugates;
+
+    private Strategy strategy = Strategy.HLT;
+    private int maxCosets = 1 << 22;
+
+    //coset table, parent[c] == c if coset c is alive, otherwise it was merged into a smaller coset
+    private int[] table;
+    private int[] parent;
+    private int capacity;
+    private int next;  //number of rows in use (alive and dead)
+    private int alive;
+    private int index = -1;
+
+    private IntStack deductions = new IntStack();
+    private final IntStack dead = new IntStack();
+
+    //statistics
+    private long defined;
+    private int maxAlive;
+
+    /**
+     * Make an enumeration of the cosets of the trivial subgroup
+     * @param generators the number of generators
+     * @param relators   the relators, coded with {@link #letter}
+     */
+    public ToddCoxeter(int generators, int[][] relators) {
+        this(generators, relators, new int[0][]);
+    }
+
+    /**
+     * Make an enumeration of the cosets of a subgroup
+     * @param generators the number of generators
+     * @param relators   the relators, coded with {@link #letter}
+     * @param subgroup   the generators of the subgroup, coded the same way
+     */
+    public ToddCoxeter(int generators, int[][] relators, int[][] subgroup) {
+        this.columns = 2 * generators;
+        List<int[]> reduced = new ArrayList<>();
+        for (int[] relator : relators) {
+            int[] word = cyclicallyReduce(check(relator));
+            if (word.length > 0) reduced.add(word);
+        }
+        this.relators = reduced.toArray(new int[0][]);
+        List<int[]> reducedSubgroup = new ArrayList<>();
+        for (int[] word : subgroup) {
+            int[] freeWord = freelyReduce(check(word));
+            if (freeWord.length > 0) reducedSubgroup.add(freeWord);
+        }
+        this.subgroup = reducedSubgroup.toArray(new int[0][]);
+
+        List<List<int[]>> byLetter = new ArrayList<>();
+        for (int x = 0; x < columns; x++) byLetter.add(new ArrayList<>());
+        for (int[] relator : this.relators) {
+            for (int[] word : Arrays.asList(relator, inverse(relator))) {
+                for (int i = 0; i < word.length; i++) {
+                    int[] conjugate = new int[word.length];
+                    for (int j = 0; j < word.length; j++) conjugate[j] = word[(i + j) % word.length];
+                    byLetter.get(conjugate[0]).add(conjugate);
+                }
+            }
+        }
+        conjugates = new int[columns][][];
+        for (int x = 0; x < columns; x++) conjugates[x] = byLetter.get(x).toArray(new int[0][]);
+    }
+
+    /**
+     * The column of a letter
+     * @param generator the generator, 0 based
+     * @param inverse   true for the inverse of the generator
+     */
+    public static int letter(int generator, boolean inverse) {
+        return 2 * generator + (inverse ? 1 : 0);
+    }
+
+    private int[] check(int[] word) {
+        for (int x : word) {
+            if (x < 0 || x >= columns) {
+                throw new IllegalArgumentException("Letter " + x + " is not one of the " + columns + " columns");
+            }
+        }
+        return word;
+    }
+
+    private static int[] freelyReduce(int[] word) {
+        int[] result = new int[word.length];
+        int length = 0;
+        for (int x : word) {
+            if (length > 0 && result[length - 1] == (x ^ 1)) {
+                length--;
+            } else {
+                result[length++] = x;
+            }
+        }
+        return Arrays.copyOf(result, length);
+    }
+
+    private static int[] cyclicallyReduce(int[] word) {
+        int[] free = freelyReduce(word);
+        int start = 0;
+        int end = free.length;
+        while (end - start > 1 && free[start] == (free[end - 1] ^ 1)) {
+            start++;
+            end--;
+        }
+        return Arrays.copyOfRange(free, start, end);
+    }
+
+    private static int[] inverse(int[] word) {
+        int[] result = new int[word.length];
+        for (int i = 0; i < word.length; i++) result[i] = word[word.length - 1 - i] ^ 1;
+        return result;
+    }
+
+    public void setStrategy(Strategy strategy) {
+        this.strategy = strategy;
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Set the most rows the coset table may have (alive and dead cosets), the enumeration fails above it
+     */
+    public void setMaxCosets(int maxCosets) {
+        if (maxCosets < 1) throw new IllegalArgumentException("At least one coset is needed");
+        this.maxCosets = maxCosets;
+    }
+
+    public int getMaxCosets() {
+        return maxCosets;
+    }
+
+    /**
+     * Enumerate the cosets, the table is only made once
+     * @return the index of the subgroup (the order of the group for the trivial subgroup)
+     * @throws IllegalStateException if the table needs more than {@link #getMaxCosets()} rows
+     * @throws CancellationException if the thread is interrupted
+     */
+    public int enumerate() {
+        if (index >= 0) return index;
+        capacity = Math.min(maxCosets, 1024);
+        table = new int[capacity * columns];
+        Arrays.fill(table, -1);
+        parent = new int[capacity];
+        next = 1;
+        alive = 1;
+        maxAlive = 1;
+        defined = 1;
+
+        if (strategy == Strategy.HLT) {
+            hlt();
+        } else {
+            felsch();
+        }
+        compact();
+        index = alive;
+        return index;
+    }
+
+    /**
+     * The number of cosets that were defined during the enumeration
+     */
+    public long getDefinedCosets() {
+        return defined;
+    }
+
+    /**
+     * The largest number of cosets that were alive at the same time
+     */
+    public int getMaxAliveCosets() {
+        return maxAlive;
+    }
+
+    /**
+     * The coset reached from a coset by a letter, after {@link #enumerate()}. Coset 0 is the subgroup.
+     */
+    public int act(int coset, int letter) {
+        enumerate();
+        return table[coset * columns + letter];
+    }
+
+    private void checkInterrupt() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("The enumeration was interrupted");
+        }
+    }
+
+    private void hlt() {
+        int slack = columns;
+        for (int[] relator : relators) slack += relator.length;
+        for (int[] word : subgroup) scan(0, word, true);
+
+        int coset = 0;
+        while (coset >= 0) {
+            for (; coset < next; coset++) {
+                if (parent[coset] != coset) continue;
+                checkInterrupt();
+                if (next + slack > capacity && capacity == maxCosets && next > alive) {
+                    coset = compact(coset);
+                }
+                for (int i = 0; i < relators.length && parent[coset] == coset; i++) {
+                    scan(coset, relators[i], true);
+                }
+                for (int x = 0; x < columns && parent[coset] == coset; x++) {
+                    if (table[coset * columns + x] < 0) define(coset, x);
+                }
+            }
+            //a coincidence can open entries of cosets that were done, go over those again
+            coset = firstOpen(0);
+        }
+    }
+
+    private void felsch() {
+        for (int[] word : subgroup) {
+            scan(0, word, true);
+            deduce();
+        }
+
+        int entry = 0; //coset * columns + letter of the last filled entry
+        while (true) {
+            checkInterrupt();
+            int open = firstOpen(entry / columns);
+            if (open < 0) open = firstOpen(0);
+            if (open < 0) return;
+            int coset = open;
+            if (next == capacity && capacity == maxCosets && next > alive) {
+                coset = compact(coset);
+            }
+            int x = 0;
+            while (table[coset * columns + x] >= 0) x++;
+            define(coset, x);
+            deduce();
+            entry = coset * columns + x;
+            if (entry / columns >= next) entry = 0;
+        }
+    }
+
+    /**
+     * The first alive coset from the given one with an open entry, or -1
+     */
+    private int firstOpen(int from) {
+        for (int coset = from; coset < next; coset++) {
+            if (parent[coset] != coset) continue;
+            for (int x = 0; x < columns; x++) {
+                if (table[coset * columns + x] < 0) return coset;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Add a new coset as the image of coset under letter x
+     */
+    private void define(int coset, int x) {
+        if (next == capacity) {
+            if (capacity == maxCosets) {
+                throw new IllegalStateException("The coset table needs more than " + maxCosets + " cosets");
+            }
+            capacity = (int) Math.min(maxCosets, 2L * capacity);
+            int used = table.length;
+            table = Arrays.copyOf(table, capacity * columns);
+            Arrays.fill(table, used, table.length, -1);
+            parent = Arrays.copyOf(parent, capacity);
+        }
+        int added = next++;
+        parent[added] = added;
+        alive++;
+        defined++;
+        maxAlive = Math.max(maxAlive, alive);
+        set(coset, x, added);
+    }
+
+    private void set(int coset, int x, int image) {
+        table[coset * columns + x] = image;
+        table[image * columns + (x ^ 1)] = coset;
+        if (strategy == Strategy.FELSCH) {
+            deductions.push(coset);
+            deductions.push(x);
+        }
+    }
+
+    /**
+     * Trace the word from coset forwards and backwards. A gap of one letter is closed, if both ends meet in
+     * different cosets those are the same. With fill, larger gaps are filled with new cosets.
+     */
+    private void scan(int coset, int[] word, boolean fill) {
+        int f = coset;
+        int i = 0;
+        int b = coset;
+        int j = word.length - 1;
+        while (true) {
+            while (i <= j && table[f * columns + word[i]] >= 0) {
+                f = table[f * columns + word[i]];
+                i++;
+            }
+            if (i > j) {
+                if (f != b) coincidence(f, b);
+                return;
+            }
+            while (j >= i && table[b * columns + (word[j] ^ 1)] >= 0) {
+                b = table[b * columns + (word[j] ^ 1)];
+                j--;
+            }
+            if (j < i) {
+                if (f != b) coincidence(f, b);
+                return;
+            } else if (i == j) {
+                set(f, word[i], b);
+                return;
+            } else if (fill) {
+                define(f, word[i]);
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Process the deductions of the Felsch strategy: every relator conjugate through a new entry is traced
+     */
+    private void deduce() {
+        while (!deductions.isEmpty()) {
+            int x = deductions.pop();
+            int coset = deductions.pop();
+            if (parent[coset] != coset) continue;
+            for (int[] conjugate : conjugates[x]) {
+                if (parent[coset] != coset) break;
+                scan(coset, conjugate, false);
+            }
+            int image = table[coset * columns + x];
+            if (image < 0 || parent[image] != image) continue;
+            for (int[] conjugate : conjugates[x ^ 1]) {
+                if (parent[image] != image) break;
+                scan(image, conjugate, false);
+            }
+        }
+    }
+
+    private int find(int coset) {
+        int root = coset;
+        while (parent[root] != root) root = parent[root];
+        while (parent[coset] != root) {
+            int up = parent[coset];
+            parent[coset] = root;
+            coset = up;
+        }
+        return root;
+    }
+
+    private void merge(int a, int b) {
+        int p = find(a);
+        int q = find(b);
+        if (p == q) return;
+        if (p > q) {
+            int swap = p;
+            p = q;
+            q = swap;
+        }
+        parent[q] = p;
+        alive--;
+        dead.push(q);
+    }
+
+    /**
+     * Merge two cosets and everything that follows from it. The rows of dead cosets move to the coset they
+     * were merged into, the smallest one survives.
+     */
+    private void coincidence(int a, int b) {
+        dead.clear();
+        merge(a, b);
+        for (int k = 0; k < dead.size(); k++) {
+            int coset = dead.get(k);
+            for (int x = 0; x < columns; x++) {
+                int image = table[coset * columns + x];
+                if (image < 0) continue;
+                if (table[image * columns + (x ^ 1)] == coset) table[image * columns + (x ^ 1)] = -1;
+                int u = find(coset);
+                int v = find(image);
+                int ux = table[u * columns + x];
+                int vx = table[v * columns + (x ^ 1)];
+                if (ux >= 0) {
+                    merge(v, ux);
+                } else if (vx >= 0) {
+                    merge(u, vx);
+                } else {
+                    set(u, x, v);
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove the dead cosets, the alive ones keep their order
+     */
+    private void compact() {
+        compact(0);
+    }
+
+    /**
+     * @param coset an alive coset
+     * @return its number after compaction
+     */
+    private int compact(int coset) {
+        int[] renumber = new int[next];
+        int count = 0;
+        for (int c = 0; c < next; c++) {
+            renumber[c] = parent[c] == c ? count++ : -1;
+        }
+        for (int c = 0; c < next; c++) {
+            if (renumber[c] < 0) continue;
+            for (int x = 0; x < columns; x++) {
+                int image = table[c * columns + x];
+                table[renumber[c] * columns + x] = image < 0 ? -1 : renumber[find(image)];
+            }
+        }
+        Arrays.fill(table, count * columns, next * columns, -1);
+        for (int c = 0; c < count; c++) parent[c] = c;
+        int result = renumber[coset];
+        next = count;
+        deductions = new IntStack();
+        return result;
+    }
+
+    /**
+     * Check that the table is complete and every relator and subgroup generator holds (for tests)
+     */
+    boolean isClosed() {
+        enumerate();
+        for (int c = 0; c < next; c++) {
+            for (int x = 0; x < columns; x++) {
+                int image = table[c * columns + x];
+                if (image < 0 || table[image * columns + (x ^ 1)] != c) return false;
+            }
+            for (int[] relator : relators) {
+                int coset = c;
+                for (int x : relator) coset = table[coset * columns + x];
+                if (coset != c) return false;
+            }
+        }
+        for (int[] word : subgroup) {
+            int coset = 0;
+            for (int x : word) coset = table[coset * columns + x];
+            if (coset != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Growing stack of ints
+     */
+    private static class IntStack {
+        private int[] values = new int[64];
+        private int size = 0;
+
+        void push(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, 2 * size);
+            values[size++] = value;
+        }
+
+        int pop() {
+            return values[--size];
+        }
+
+        int get(int i) {
+            return values[i];
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+}
@@ -1,7 +1,21 @@
+import kbs.Alphabet;
+import kbs.IntRewriteSystem;
 import org.junit.Test;
+import parser.FastParser;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Created by Robbert Gurdeep Singh on 17/02/16.
@@ -14,4 +28,48 @@ public class MainTest {
         System.setIn(new FileInputStream(new File("./res/example-10.txt")));
         Main.main(new String[]{"example-1 0.txt"});
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testBatch() throws Exception {
+        List<Path> files = Main.batchFiles(
+                Arrays.asList(Paths.get("res/example-504.txt"), Paths.get("res/example-10.txt")));
+        List<Main.BatchResult> results = Main.runBatch(files, 2, 0, "kb", 1000, system -> system.setMaxRules(1000));
+        assertEquals(2, results.size());
+        assertEquals("ok", results.get(0).status);
+        assertEquals("504", results.get(0).size);
+        assertEquals("10", results.get(1).size);
+    }
+
+    @Test
+    public void testQueriesWithBadLines() throws Exception {
+        IntRewriteSystem system = Main.rewriteSystem(new FastParser().parse("a^3=1\nb^2=1\n(ab)^2=1"));
+        Alphabet<Character> alphabet = new Alphabet<>(Arrays.asList('a', 'b'), Comparator.naturalOrder());
+        StringWriter out = new StringWriter();
+        long count = Main.answerQueries(system, alphabet,
+                new BufferedReader(new StringReader("aaa\nx\nabab=1\n(ab\nbb=1\nax=a\nb\n")), out);
+        String[] answers = out.toString().split("\n");
+        assertEquals(7, count);
+        assertEquals(7, answers.length);
+        assertEquals("1", answers[0]);
+        assertTrue(answers[1], answers[1].startsWith("error: "));
+        assertEquals("true", answers[2]);
+        assertTrue(answers[3], answers[3].startsWith("error: "));
+        assertEquals("true", answers[4]);
+        assertTrue(answers[5], answers[5].startsWith("error: "));
+        assertEquals("b", answers[6]);
+    }
+
+    @Test
+    public void testQueriesWithInverses() throws Exception {
+        IntRewriteSystem system = Main.rewriteSystem(new FastParser().parse("a^3=1\nb^2=1\n(ab)^2=1"));
+        Alphabet<Character> alphabet = new Alphabet<>(Arrays.asList('a', 'b'), Comparator.naturalOrder());
+        StringWriter out = new StringWriter();
+        long count = Main.answerQueries(system, alphabet,
+                new BufferedReader(new StringReader("a'\na^-1=aa\na'=a\naa'\na^2\n")), out);
+        String[] answers = out.toString().split("\n");
+        assertEquals(5, count);
+        assertEquals(5, answers.length);
+        for (int i = 0; i < 4; i++) assertTrue(answers[i], answers[i].startsWith("error: "));
+        assertEquals("aa", answers[4]);
+    }
+}
@@ -0,0 +1,127 @@
+import org.junit.Test;
+import parser.FastParser;
+import parser.Presentation;
+
+import java.io.BufferedReader;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test class for {@link Portfolio}
+ */
+public class PortfolioTest {
+
+    private static Presentation parse(String file) throws Exception {
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(file))) {
+            return Main.parse(reader);
+        }
+    }
+
+    @Test
+    public void testInverses() throws Exception {
+        //the completion would read a' as a and find 9, every configuration that races must agree
+        Presentation presentation = new FastParser().parse("a^3=1\nb^3=1\na'b=ba\n");
+        List<Portfolio.Configuration> configurations = Portfolio.configurations(presentation, 1 << 20);
+        assertFalse(configurations.isEmpty());
+        for (Portfolio.Configuration configuration : configurations) {
+            assertEquals(configuration.name, BigInteger.valueOf(3), configuration.size.call());
+        }
+        for (int i = 0; i < 8; i++) {
+            assertEquals(BigInteger.valueOf(3), Portfolio.race(configurations).size);
+        }
+    }
+
+    @Test
+    public void testMonoid() throws Exception {
+        //aa=a has 2 elements as a monoid and 1 as a group, only the completion may answer
+        Presentation presentation = new FastParser().parse("aa=a\n");
+        List<Portfolio.Configuration> configurations = Portfolio.configurations(presentation, 1 << 20);
+        assertFalse(configurations.isEmpty());
+        for (Portfolio.Configuration configuration : configurations) {
+            assertEquals(configuration.name, BigInteger.valueOf(2), configuration.size.call());
+        }
+        for (int i = 0; i < 8; i++) {
+            assertEquals(BigInteger.valueOf(2), Portfolio.race(configurations).size);
+        }
+    }
+
+    @Test
+    public void testGroupsRaceBoth() throws Exception {
+        //every letter has finite order, so the monoid is the group
+        List<String> names = new ArrayList<>();
+        for (Portfolio.Configuration configuration : Portfolio.configurations(parse("res/example-360.txt"), 1 << 20)) {
+            names.add(configuration.name);
+        }
+        assertTrue(names.toString(), names.contains("kb") && names.contains("hlt"));
+    }
+
+    @Test
+    public void testSizes() throws Exception {
+        String[] files = {"res/example-10.txt", "res/example-360.txt", "res/example-504.txt",
+                "res/example-chloe.txt", "res/example-testcase.txt"};
+        int[] sizes = {10, 360, 504, 8, 168};
+        for (int i = 0; i < files.length; i++) {
+            Presentation parsed = parse(files[i]);
+            for (Portfolio.Configuration configuration : Portfolio.configurations(parsed, 1 << 20)) {
+                assertEquals(configuration.name, BigInteger.valueOf(sizes[i]), configuration.size.call());
+            }
+            assertEquals(BigInteger.valueOf(sizes[i]), Portfolio.race(Portfolio.configurations(parsed, 1 << 20)).size);
+        }
+    }
+
+    @Test
+    public void testLosersAreCancelled() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        Portfolio.Result result = Portfolio.race(Arrays.asList(
+                new Portfolio.Configuration("slow", () -> {
+                    started.countDown();
+                    try {
+                        Thread.sleep(60000);
+                    } catch (InterruptedException e) {
+                        cancelled.countDown();
+                    }
+                    return BigInteger.ZERO;
+                }),
+                new Portfolio.Configuration("failing", () -> {
+                    throw new IllegalStateException("no answer");
+                }),
+                new Portfolio.Configuration("fast", () -> {
+                    started.await();
+                    return BigInteger.TEN;
+                })));
+        assertEquals("fast", result.name);
+        assertEquals(BigInteger.TEN, result.size);
+        cancelled.await();
+    }
+
+    @Test
+    public void testAllFail() throws Exception {
+        try {
+            Portfolio.race(Arrays.asList(new Portfolio.Configuration("failing", () -> {
+                throw new IllegalStateException("no answer");
+            })));
+            fail("Every configuration failed");
+        } catch (IllegalStateException e) {
+            assertEquals("no answer", e.getCause().getMessage());
+        }
+    }
+
+    @Test(expected = CancellationException.class)
+    public void testInterruptedCount() throws Exception {
+        Thread.currentThread().interrupt();
+        try {
+            Main.rewriteSystem(parse("res/example-10.txt")).countNormalForms();
+        } finally {
+            Thread.interrupted();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package kbs;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static kbs.IntRewriteSystemTest.*;
+import static kbs.IntRuleTest.word;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for {@link CompiledRewriteSystem}
+ */
+public class CompiledRewriteSystemTest {
+
+    private static int[] randomWord(Random random, int alphabetSize, int maxLength) {
+        int[] word = new int[random.nextInt(maxLength + 1)];
+        for (int i = 0; i < word.length; i++) word[i] = random.nextInt(alphabetSize);
+        return word;
+    }
+
+    @Test
+    public void testSameAsSystem() throws Exception {
+        IntRewriteSystem system = group168();
+        CompiledRewriteSystem compiled = system.compile();
+        assertEquals(2, compiled.getAlphabetSize());
+        assertEquals(system.getCompleteRules().size(), compiled.getRuleCount());
+        Random random = new Random(7);
+        for (int i = 0; i < 1000; i++) {
+            int[] word = randomWord(random, 2, 40);
+            assertArrayEquals(system.getUniqueNF(word), compiled.reduce(word));
+        }
+    }
+
+    @Test
+    public void testInPlace() throws Exception {
+        CompiledRewriteSystem compiled = system("BB=", "AAAAA=", "BA=AAAAB").compile();
+        CompiledRewriteSystem.Buffer buffer = compiled.newBuffer();
+        int[] words = {1, 1, 0, 1, 0, 0, 0, 0, 1, 0};
+        int length = compiled.reduce(words, 2, 8, words, 2, buffer);
+        assertArrayEquals(compiled.reduce(word("ABAAAABA")), Arrays.copyOfRange(words, 2, 2 + length));
+        assertEquals(1, words[0]);
+        assertEquals(1, words[1]);
+    }
+
+    @Test
+    public void testEqual() throws Exception {
+        CompiledRewriteSystem compiled = system("BB=", "AAAAA=", "BA=AAAAB").compile();
+        CompiledRewriteSystem.Buffer buffer = compiled.newBuffer();
+        assertTrue(compiled.equal(word("AB"), word("BAAAA"), buffer));
+        assertTrue(compiled.equal(word(""), word("AAAAABB"), buffer));
+        assertFalse(compiled.equal(word("A"), word("B"), buffer));
+    }
+
+    @Test
+    public void testConcurrent() throws Exception {
+        IntRewriteSystem system = group168();
+        CompiledRewriteSystem compiled = system.compile();
+        Random random = new Random(3);
+        List<int[]> words = new ArrayList<>();
+        List<int[]> expected = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            words.add(randomWord(random, 2, 60));
+            expected.add(system.getUniqueNF(words.get(i)));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                results.add(pool.submit(() -> {
+                    CompiledRewriteSystem.Buffer buffer = compiled.newBuffer();
+                    int[] target = new int[60];
+                    for (int i = 0; i < words.size(); i++) {
+                        int[] word = words.get(i);
+                        int length = compiled.reduce(word, 0, word.length, target, 0, buffer);
+                        if (!Arrays.equals(expected.get(i), Arrays.copyOf(target, length))) return false;
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) assertTrue(result.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
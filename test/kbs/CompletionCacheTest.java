@@ -0,0 +1,87 @@
+package kbs;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static kbs.IntRuleTest.word;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for {@link CompletionCache}
+ */
+public class CompletionCacheTest {
+
+    private static IntRewriteSystem complete(CompletionCache cache, String... relations) {
+        int[][] left = new int[relations.length][];
+        int[][] right = new int[relations.length][];
+        for (int i = 0; i < relations.length; i++) {
+            String[] sides = relations[i].split("=", -1);
+            left[i] = word(sides[0]);
+            right[i] = word(sides[1]);
+        }
+        return cache.complete(2, left, right);
+    }
+
+    @Test
+    public void testCanonical() throws Exception {
+        CompletionCache cache = new CompletionCache(10);
+        IntRewriteSystem system = complete(cache, "AAA=", "BB=", "ABAB=");
+        assertEquals(BigInteger.valueOf(6), system.countNormalForms());
+        assertEquals(1, cache.getMisses());
+
+        //other order, sides swapped, duplicates
+        assertSame(system, complete(cache, "=BB", "ABAB=", "AAA=", "BB="));
+        assertEquals(1, cache.getHits());
+
+        //a rotation is only the same when asked for
+        IntRewriteSystem rotated = complete(cache, "AAA=", "BB=", "BABA=");
+        assertNotSame(system, rotated);
+        assertEquals(2, cache.getMisses());
+        cache.setRotateRelators(true);
+        IntRewriteSystem canonical = complete(cache, "AAA=", "BB=", "BABA=");
+        assertSame(canonical, complete(cache, "AAA=", "BB=", "ABAB="));
+        assertEquals(system.getCompleteRules(), canonical.getCompleteRules());
+    }
+
+    @Test
+    public void testLeastRotation() throws Exception {
+        assertArrayEquals(word("AAB"), CompletionCache.leastRotation(word("ABA")));
+        assertArrayEquals(word("ABAB"), CompletionCache.leastRotation(word("BABA")));
+        assertArrayEquals(word(""), CompletionCache.leastRotation(word("")));
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        CompletionCache cache = new CompletionCache(1);
+        IntRewriteSystem first = complete(cache, "AAA=", "BB=", "ABAB=");
+        complete(cache, "AA=", "BB=", "ABAB=");
+        assertEquals(1, cache.size());
+        assertNotSame(first, complete(cache, "AAA=", "BB=", "ABAB="));
+        assertEquals(3, cache.getMisses());
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    public void testDirectory() throws Exception {
+        Path directory = Files.createTempDirectory("kbs-cache");
+        try {
+            IntRewriteSystem system = complete(new CompletionCache(4, directory), "AAA=", "BB=", "ABAB=");
+            CompletionCache cache = new CompletionCache(4, directory);
+            IntRewriteSystem loaded = complete(cache, "BB=", "AAA=", "ABAB=");
+            assertEquals(1, cache.getDiskHits());
+            assertEquals(0, cache.getMisses());
+            assertEquals(system.getCompleteRules(), loaded.getCompleteRules());
+            complete(cache, "BB=", "AAA=", "ABAB=");
+            assertEquals(1, cache.getHits());
+        } finally {
+            try (Stream<Path> files = Files.list(directory)) {
+                files.forEach(f -> f.toFile().delete());
+            }
+            Files.delete(directory);
+        }
+    }
+}
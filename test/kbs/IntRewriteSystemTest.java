@@ -0,0 +1,358 @@
+package kbs;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static kbs.IntRuleTest.word;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for {@link IntRewriteSystem}
+ */
+public class IntRewriteSystemTest {
+
+    /** PSL(2,7), the presentation most tests complete */
+    static final String[] GROUP_168 = {"AAAAAAA=", "BB=", "AAAABAAAABAAAABAAAAB=", "ABABAB="};
+    static final int GROUP_168_SIZE = 168;
+
+    static IntRewriteSystem system(String... relations) {
+        int[][] left = new int[relations.length][];
+        int[][] right = new int[relations.length][];
+        for (int i = 0; i < relations.length; i++) {
+            String[] sides = relations[i].split("=", -1);
+            left[i] = word(sides[0]);
+            right[i] = word(sides[1]);
+        }
+        int size = 0;
+        for (String relation : relations) {
+            for (char c : relation.toCharArray()) {
+                if (c != '=') size = Math.max(size, c - 'A' + 1);
+            }
+        }
+        return new IntRewriteSystem(size, left, right);
+    }
+
+    static IntRewriteSystem group168() {
+        return system(GROUP_168);
+    }
+
+    @Test
+    public void testRewrite() throws Exception {
+        IntRewriteSystem system = system("RRR=", "SSS=", "RSRS=");
+        assertArrayEquals(new int[0], system.rewrite(word("RRRSRSRSSS")));
+        assertArrayEquals(word("RSR"), system.rewrite(word("RSR")));
+    }
+
+    @Test
+    public void testComplete7() throws Exception {
+        assertEquals(7, system("RRR=", "SSS=", "RSRS=").getCompleteRules().size());
+    }
+
+    @Test
+    public void testComplete9() throws Exception {
+        IntRewriteSystem system = system("SSSSSSS=", "TT=", "SSSSTSSSSTSSSSTSSSST=", "STSTST=");
+        assertEquals(32, system.getCompleteRules().size());
+    }
+
+    @Test
+    public void testNormalForms() throws Exception {
+        IntRewriteSystem system = system("BB=", "AAAAA=", "BA=AAAAB");
+        List<int[]> normalForms = system.calcNormalForms();
+        assertEquals(10, normalForms.size());
+        for (int[] normalForm : normalForms) {
+            assertArrayEquals(normalForm, system.getUniqueNF(normalForm));
+        }
+        assertArrayEquals(system.getUniqueNF(word("AB")), system.getUniqueNF(word("BAAAA")));
+    }
+
+    @Test
+    public void testLimits() throws Exception {
+        //the braid monoid has no finite complete system for shortlex
+        IntRewriteSystem system = system("ABA=BAB");
+        system.setMaxRules(20);
+        CompletionResult result = system.tryComplete();
+        assertEquals(CompletionResult.Status.RULE_LIMIT, result.status);
+        assertFalse(result.isComplete());
+        assertEquals(20, result.getRules().size());
+        assertFalse(result.statistics.finished);
+        assertEquals(20, result.statistics.ruleCount);
+        //the next call starts over with the new limit
+        system.setMaxRules(100);
+        assertEquals(100, system.tryComplete().getRules().size());
+
+        system = system("ABA=BAB");
+        system.setMaxFromLength(10);
+        result = system.tryComplete();
+        assertEquals(CompletionResult.Status.LENGTH_LIMIT, result.status);
+        for (IntRule rule : result.getRules()) assertTrue(rule.from.length <= 10);
+
+        system = system("ABA=BAB");
+        system.setMaxPendingPairs(30);
+        assertEquals(CompletionResult.Status.PAIR_LIMIT, system.tryComplete().status);
+
+        system = system("ABA=BAB");
+        system.setTimeLimit(100);
+        long start = System.nanoTime();
+        assertEquals(CompletionResult.Status.TIME_LIMIT, system.tryComplete().status);
+        assertTrue(System.nanoTime() - start < 10_000_000_000L);
+        try {
+            system.complete();
+            fail("complete should not succeed");
+        } catch (IllegalStateException e) {
+            //expected
+        }
+    }
+
+    @Test
+    public void testTryComplete() throws Exception {
+        IntRewriteSystem system = system("RRR=", "SSS=", "RSRS=");
+        system.setMaxRules(7);
+        CompletionResult result = system.tryComplete();
+        assertTrue(result.isComplete());
+        assertEquals(system.getCompleteRules(), result.getRules());
+        assertTrue(result.statistics.finished);
+
+        system = system("RRR=", "SSS=", "RSRS=");
+        Thread.currentThread().interrupt();
+        try {
+            assertEquals(CompletionResult.Status.CANCELLED, system.tryComplete().status);
+        } finally {
+            Thread.interrupted();
+        }
+        assertEquals(7, system.getCompleteRules().size());
+    }
+
+    @Test
+    public void testReduceAll() throws Exception {
+        IntRewriteSystem system = system("BB=", "AAAAA=", "BA=AAAAB");
+        String[] input = {"BAAAA", "", "AB", "BBBBAAAAAAB", "AAAAA"};
+        int[] offsets = new int[input.length];
+        int[] lengths = new int[input.length];
+        int[] words = new int[32];
+        int used = 0;
+        for (int i = 0; i < input.length; i++) {
+            offsets[i] = used;
+            lengths[i] = input[i].length();
+            System.arraycopy(word(input[i]), 0, words, used, lengths[i]);
+            used += lengths[i];
+        }
+        system.reduceAll(words, offsets, lengths, input.length);
+        for (int i = 0; i < input.length; i++) {
+            assertArrayEquals(system.getUniqueNF(word(input[i])),
+                    Arrays.copyOfRange(words, offsets[i], offsets[i] + lengths[i]));
+        }
+    }
+
+    @Test
+    public void testReductionCache() throws Exception {
+        IntRewriteSystem system = system("BB=", "AAAAA=", "BA=AAAAB");
+        IntRewriteSystem cached = system("BB=", "AAAAA=", "BA=AAAAB");
+        cached.setReductionCache(1 << 16);
+        String[] input = {"BAAAA", "", "AB", "BBBBAAAAAAB", "BAAAA", "AB"};
+        for (String w : input) {
+            int[] normalForm = cached.getUniqueNF(word(w));
+            assertArrayEquals(system.getUniqueNF(word(w)), normalForm);
+            if (normalForm.length > 0) normalForm[0] ^= 1; //a copy, the cache does not change
+        }
+        assertArrayEquals(system.getUniqueNF(word("AB")), cached.getUniqueNF(word("AB")));
+        assertEquals(3, cached.getReductionCache().getHits());
+        assertEquals(4, cached.getReductionCache().getMisses());
+        cached.setReductionCache(0);
+        assertNull(cached.getReductionCache());
+    }
+
+    @Test
+    public void testCompleteOnce() throws Exception {
+        //the group of 360 elements from res/, a complete system must not be copied again for every reduction
+        IntRewriteSystem system = system("AAA=", "BBB=", "CCC=", "DDD=",
+                "ABAB=", "BCBC=", "CACA=", "ADAD=", "BDBD=", "CDCD=");
+        CompletionResult result = system.tryComplete();
+        assertTrue(result.isComplete());
+        assertSame(result, system.tryComplete());
+
+        Random random = new Random(3);
+        int[] word = new int[30];
+        for (int j = 0; j < word.length; j++) word[j] = random.nextInt(4);
+        int[] normalForm = system.getUniqueNF(word);
+        long start = System.nanoTime();
+        for (int i = 0; i < 100000; i++) assertEquals(normalForm.length, system.getUniqueNF(word).length);
+        assertTrue("Too slow", System.nanoTime() - start < 1_000_000_000L);
+    }
+
+    @Test
+    public void testNormalFormStream() throws Exception {
+        IntRewriteSystem system = group168();
+        List<int[]> all = system.calcNormalForms();
+        assertEquals(GROUP_168_SIZE, all.size());
+        for (int i = 1; i < all.size(); i++) {
+            assertTrue(Words.compare(all.get(i - 1), all.get(i)) < 0);
+            assertArrayEquals(all.get(i), system.getUniqueNF(all.get(i)));
+        }
+
+        //parallel streams split by rank and keep the order
+        List<int[]> parallel = system.normalForms().parallel().collect(Collectors.toList());
+        assertEquals(all.size(), parallel.size());
+        for (int i = 0; i < all.size(); i++) {
+            assertArrayEquals(all.get(i), parallel.get(i));
+        }
+        assertEquals(GROUP_168_SIZE, system.normalForms().spliterator().getExactSizeIfKnown());
+
+        //infinite systems can be enumerated lazily
+        List<int[]> first = system("AA=", "AB=BA").normalForms().limit(5).collect(Collectors.toList());
+        assertArrayEquals(word(""), first.get(0));
+        assertArrayEquals(word("A"), first.get(1));
+        assertArrayEquals(word("B"), first.get(2));
+        assertArrayEquals(word("AB"), first.get(3));
+        assertArrayEquals(word("BB"), first.get(4));
+    }
+
+    @Test
+    public void testCountNormalForms() throws Exception {
+        assertEquals(BigInteger.valueOf(10), system("BB=", "AAAAA=", "BA=AAAAB").countNormalForms());
+        assertEquals(BigInteger.valueOf(6), system("AAA=", "BB=", "ABAB=").countNormalForms());
+        IntRewriteSystem system = group168();
+        assertEquals(BigInteger.valueOf(system.calcNormalForms().size()), system.countNormalForms());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCountInfinite() throws Exception {
+        system("AA=", "AB=BA").countNormalForms();
+    }
+
+    @Test
+    public void testStrategies() throws Exception {
+        for (PairStrategy strategy : PairStrategy.values()) {
+            IntRewriteSystem system = group168();
+            system.setStrategy(strategy);
+            assertEquals(strategy.toString(), GROUP_168_SIZE, system.calcNormalForms().size());
+        }
+    }
+
+    @Test
+    public void testParallel() throws Exception {
+        IntRewriteSystem sequential = group168();
+        Set<IntRule> expected = sequential.getCompleteRules();
+        for (int threads = 2; threads <= 8; threads *= 2) {
+            for (int batchSize : new int[]{1, 7, 256}) {
+                IntRewriteSystem system = group168();
+                system.setParallelism(threads);
+                system.setBatchSize(batchSize);
+                assertEquals(expected, system.getCompleteRules());
+                assertEquals(BigInteger.valueOf(GROUP_168_SIZE), system.countNormalForms());
+            }
+        }
+    }
+
+    @Test
+    public void testInterreduction() throws Exception {
+        String[][] presentations = {
+                GROUP_168,
+                {"AAA=", "BB=", "ABABAB="},
+                {"AA=", "AB=BA"},
+        };
+        for (String[] relations : presentations) {
+            Set<IntRule> expected = system(relations).getCompleteRules();
+            for (int threads = 1; threads <= 4; threads *= 4) {
+                IntRewriteSystem system = system(relations);
+                system.setInterreduction(true);
+                system.setParallelism(threads);
+                system.setBatchSize(7);
+                assertEquals(expected, system.getCompleteRules());
+                assertEquals(expected.size(), system.getStatistics().ruleCount);
+            }
+        }
+        IntRewriteSystem system = group168();
+        system.setInterreduction(true);
+        system.complete();
+        assertTrue(system.getStatistics().rulesComposed > 0);
+    }
+
+    @Test
+    public void testCriticalPairCriterion() throws Exception {
+        String[][] presentations = {
+                GROUP_168,
+                {"AAA=", "BB=", "ABABAB="},
+                {"AA=", "AB=BA"},
+        };
+        for (String[] relations : presentations) {
+            IntRewriteSystem without = system(relations);
+            without.setCriticalPairCriterion(false);
+            Set<IntRule> expected = without.getCompleteRules();
+            assertEquals(0, without.getStatistics().pairsRedundant);
+
+            IntRewriteSystem system = system(relations);
+            assertTrue(system.isCriticalPairCriterion());
+            assertEquals(expected, system.getCompleteRules());
+
+            //every critical pair of the result must be joinable
+            for (IntRule a : expected) {
+                for (IntRule b : expected) {
+                    for (IntRule.CriticalPair pair : a.getCritical(b)) {
+                        assertArrayEquals(system.getUniqueNF(pair.getTo1()), system.getUniqueNF(pair.getTo2()));
+                    }
+                }
+            }
+        }
+        IntRewriteSystem system = group168();
+        system.complete();
+        assertTrue(system.getStatistics().pairsRedundant > 0);
+    }
+
+    @Test
+    public void testPairMemory() throws Exception {
+        Set<IntRule> expected = group168().getCompleteRules();
+        for (int threads = 1; threads <= 4; threads *= 4) {
+            IntRewriteSystem system = group168();
+            system.setPairMemory(4096);
+            system.setParallelism(threads);
+            assertEquals(expected, system.getCompleteRules());
+            assertTrue(system.getStatistics().pairsSpilled > 0);
+        }
+    }
+
+    @Test
+    public void testStatistics() throws Exception {
+        IntRewriteSystem system = group168();
+        assertNull(system.getStatistics());
+        List<CompletionStatistics> rounds = new ArrayList<>();
+        system.setBatchSize(16);
+        system.setListener(rounds::add);
+        system.complete();
+
+        CompletionStatistics last = system.getStatistics();
+        assertTrue(rounds.size() > 1);
+        assertSame(last, rounds.get(rounds.size() - 1));
+        assertTrue(last.finished);
+        assertEquals(system.getCompleteRules().size(), last.ruleCount);
+        assertEquals(0, last.pendingPairs);
+        assertEquals(last.ruleCount, last.rulesAdded - last.rulesRemoved);
+        assertTrue(last.pairsGenerated > last.pairsTrivial + last.pairsDuplicate);
+        for (int i = 1; i < rounds.size(); i++) {
+            assertTrue(rounds.get(i - 1).pairsGenerated <= rounds.get(i).pairsGenerated);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testStrategyAfterComplete() throws Exception {
+        IntRewriteSystem system = system("AAA=", "BB=");
+        system.complete();
+        system.setStrategy(PairStrategy.OLDEST);
+    }
+
+    @Test
+    public void testAlphabet() throws Exception {
+        Alphabet<Character> alphabet = new Alphabet<>(Arrays.asList('t', 's', 't'), Comparator.naturalOrder());
+        assertEquals(2, alphabet.size());
+        assertArrayEquals(new int[]{1, 0, 0}, alphabet.encode(Arrays.asList('t', 's', 's')));
+        assertEquals(Arrays.asList('s', 't'), alphabet.decode(new int[]{0, 1}));
+
+        Map<List<Character>, List<Character>> relations = new HashMap<>();
+        relations.put(Arrays.asList('s', 's', 's'), Collections.emptyList());
+        relations.put(Arrays.asList('t', 't'), Collections.emptyList());
+        relations.put(Arrays.asList('s', 't', 's', 't'), Collections.emptyList());
+        assertEquals(6, IntRewriteSystem.of(relations, alphabet).calcNormalForms().size());
+    }
+}
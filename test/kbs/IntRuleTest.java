@@ -0,0 +1,102 @@
+package kbs;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test class for {@link IntRule}
+ */
+public class IntRuleTest {
+
+    static int[] word(String a) {
+        return a.chars().map(c -> c - 'A').toArray();
+    }
+
+    private String testRule(String in, String from, String to) {
+        IntRule rule = new IntRule(word(from), word(to));
+        int[] buffer = word(in);
+        int length = rule.apply(buffer, buffer.length);
+        if (length < 0) length = buffer.length;
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < length; i++) out.append((char) (buffer[i] + 'A'));
+        return out.toString();
+    }
+
+    @Test
+    public void testApply() throws Exception {
+        assertEquals("LIESELOTTEISLEUK", testRule("LIESELOTTEISNIETLEUK", "ISNIET", "IS"));
+        assertEquals("Should do nothing if not found", "TANDWIEL", testRule("TANDWIEL", "ISNIET", "IS"));
+        assertEquals("Should replace at most once", "BABABARGERARDLOS", testRule("BABABARBARBAROSLOS", "BARBAROS", "GERARD"));
+        assertEquals("Should replace at most once", "RLLLLLLLLL", testRule("LLLLLLLLLLL", "LL", "R"));
+        assertEquals("RSRSS", testRule("SSRRS", "SSRR", "RSRS"));
+        assertFalse(testRule("SSRRSR", "RSRS", "X").contains("X"));
+        assertEquals("XAAB", testRule("AABAABAAB", "AABAAB", "X"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoGrowing() throws Exception {
+        new IntRule(word("DEF"), word("ABCD"));
+    }
+
+    @Test
+    public void testGetCritical() throws Exception {
+        IntRule a = new IntRule(word("ABCD"), word("P"));
+        IntRule b = new IntRule(word("CDEF"), word("Q"));
+        List<IntRule.CriticalPair> critical = a.getCritical(b);
+        assertEquals(1, critical.size());
+        assertArrayEquals(word("PEF"), critical.get(0).getTo1());
+        assertArrayEquals(word("ABQ"), critical.get(0).getTo2());
+
+        a = new IntRule(word("ABXX"), word("P"));
+        b = new IntRule(word("XXEF"), word("Q"));
+        assertEquals(2, a.getCritical(b).size());
+        assertEquals(0, b.getCritical(a).size());
+
+        a = new IntRule(word("XXXXX"), word("P"));
+        assertEquals(4, a.getCritical(a).size());
+    }
+
+    @Test
+    public void testLazyCriticalPair() throws Exception {
+        IntRule a = new IntRule(word("ABCD"), word("P"));
+        IntRule b = new IntRule(word("CDEF"), word("QQ"));
+        IntRule.CriticalPair pair = a.getCritical(b, 2);
+        assertEquals(4, pair.length);
+        assertNull(pair.to1);
+        assertFalse(pair.isStale());
+
+        //a replaced rule is followed, a removed one makes the pair stale
+        IntRule reduced = new IntRule(word("CDEF"), word("Q"));
+        b.removed = true;
+        b.replacement = reduced;
+        assertFalse(pair.isStale());
+        assertArrayEquals(word("PEF"), pair.getTo1());
+        assertArrayEquals(word("ABQ"), pair.getTo2());
+
+        IntRule.CriticalPair other = a.getCritical(reduced, 2);
+        reduced.removed = true;
+        assertTrue(other.isStale());
+        assertNull(new IntRule(word("AA"), word("")).getCritical(new IntRule(word("AA"), word("")), 1));
+    }
+
+    @Test
+    public void testCriticalPairEquals() throws Exception {
+        IntRule.CriticalPair pair = new IntRule.CriticalPair(word("AB"), word("C"));
+        assertEquals(pair, new IntRule.CriticalPair(word("AB"), word("C")));
+        assertEquals(pair, new IntRule.CriticalPair(word("C"), word("AB")));
+        assertEquals(pair.hashCode(), new IntRule.CriticalPair(word("C"), word("AB")).hashCode());
+        assertNotEquals(pair, new IntRule.CriticalPair(word("AB"), word("D")));
+    }
+
+    @Test
+    public void testCanOptimize() throws Exception {
+        IntRule a = new IntRule(word("ABA"), word("B"));
+        IntRule b = new IntRule(word("BABAB"), word("A"));
+        assertTrue(a.canOptimize(b));
+        assertFalse(b.canOptimize(a));
+        assertFalse(a.canOptimize(a));
+    }
+}
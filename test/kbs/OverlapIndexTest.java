@@ -0,0 +1,76 @@
+package kbs;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static kbs.IntRuleTest.word;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for {@link OverlapIndex}
+ */
+public class OverlapIndexTest {
+
+    private static Set<String> viaIndex(OverlapIndex index, IntRule rule) {
+        Set<String> result = new HashSet<>();
+        index.overlaps(rule, (first, second, length) -> result.add(first + " " + second + " " + length));
+        return result;
+    }
+
+    private static Set<String> allPairs(Collection<IntRule> rules, IntRule rule) {
+        Set<String> result = new HashSet<>();
+        for (IntRule other : rules) {
+            for (int length = 1; length <= Math.min(rule.from.length, other.from.length); length++) {
+                if (Arrays.equals(Arrays.copyOfRange(rule.from, rule.from.length - length, rule.from.length),
+                        Arrays.copyOf(other.from, length))) {
+                    result.add(rule + " " + other + " " + length);
+                }
+                if (Arrays.equals(Arrays.copyOfRange(other.from, other.from.length - length, other.from.length),
+                        Arrays.copyOf(rule.from, length))) {
+                    result.add(other + " " + rule + " " + length);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testOverlaps() throws Exception {
+        OverlapIndex index = new OverlapIndex(26);
+        IntRule a = new IntRule(word("ABCD"), word("P"));
+        IntRule b = new IntRule(word("CDEF"), word("Q"));
+        index.add(a);
+        index.add(b);
+        //a full overlap with itself is found too, it gives a trivial pair
+        assertEquals(new HashSet<>(Arrays.asList(a + " " + b + " 2", a + " " + a + " 4")), viaIndex(index, a));
+
+        IntRule x = new IntRule(word("XXX"), word(""));
+        index.add(x);
+        assertEquals(new HashSet<>(Arrays.asList(x + " " + x + " 1", x + " " + x + " 2", x + " " + x + " 3")),
+                viaIndex(index, x));
+
+        index.remove(b);
+        assertEquals(Collections.singleton(a + " " + a + " 4"), viaIndex(index, a));
+    }
+
+    @Test
+    public void testSameAsAllPairs() throws Exception {
+        Random random = new Random(42);
+        OverlapIndex index = new OverlapIndex(2);
+        List<IntRule> rules = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            int[] from = new int[1 + random.nextInt(6)];
+            for (int j = 0; j < from.length; j++) from[j] = random.nextInt(2);
+            IntRule rule = new IntRule(from, new int[0]);
+            if (rules.contains(rule)) continue;
+            rules.add(rule);
+            index.add(rule);
+            assertEquals(allPairs(rules, rule), viaIndex(index, rule));
+            if (random.nextInt(4) == 0) {
+                IntRule removed = rules.remove(random.nextInt(rules.size()));
+                index.remove(removed);
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package kbs;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test class for {@link PairQueue}
+ */
+public class PairQueueTest {
+
+    private static IntRule.CriticalPair randomPair(Random random, int alphabetSize, long sequence) {
+        int[] to1 = new int[1 + random.nextInt(8)];
+        int[] to2 = new int[random.nextInt(to1.length + 1)];
+        for (int i = 0; i < to1.length; i++) to1[i] = random.nextInt(alphabetSize);
+        for (int i = 0; i < to2.length; i++) to2[i] = random.nextInt(alphabetSize);
+        IntRule.CriticalPair pair = new IntRule.CriticalPair(to1, to2);
+        pair.sequence = sequence;
+        return pair;
+    }
+
+    private static void sameOrder(PairStrategy strategy, int alphabetSize) {
+        Random random = new Random(3);
+        PriorityQueue<IntRule.CriticalPair> expected = new PriorityQueue<>(strategy);
+        long sequence = 0;
+        try (PairQueue queue = new PairQueue(alphabetSize, strategy, 2000)) {
+            for (int step = 0; step < 5000; step++) {
+                if (random.nextInt(3) > 0) {
+                    IntRule.CriticalPair pair = randomPair(random, alphabetSize, sequence++);
+                    expected.add(pair);
+                    queue.add(pair);
+                } else {
+                    IntRule.CriticalPair want = expected.poll();
+                    IntRule.CriticalPair got = queue.poll();
+                    if (want == null) {
+                        assertNull(got);
+                    } else {
+                        assertEquals(want.sequence, got.sequence);
+                        assertArrayEquals(want.to1, got.to1);
+                        assertArrayEquals(want.to2, got.to2);
+                    }
+                }
+                assertEquals(expected.size(), queue.size());
+            }
+            while (!expected.isEmpty()) {
+                assertEquals(expected.poll().sequence, queue.poll().sequence);
+            }
+            assertTrue(queue.isEmpty());
+            assertNull(queue.poll());
+            assertTrue(queue.spilled() > 0);
+        }
+    }
+
+    @Test
+    public void testSameOrder() throws Exception {
+        for (PairStrategy strategy : PairStrategy.values()) {
+            sameOrder(strategy, 3);
+        }
+    }
+
+    @Test
+    public void testWideLetters() throws Exception {
+        sameOrder(PairStrategy.SHORTEST, 1000);
+    }
+
+    @Test
+    public void testRunsAreMerged() throws Exception {
+        //every run has a read buffer, many spills must not keep many runs
+        Random random = new Random(5);
+        PriorityQueue<IntRule.CriticalPair> expected = new PriorityQueue<>(PairStrategy.SHORTEST);
+        try (PairQueue queue = new PairQueue(3, PairStrategy.SHORTEST, 20000)) {
+            for (int i = 0; i < 50000; i++) {
+                IntRule.CriticalPair pair = randomPair(random, 3, i);
+                expected.add(pair);
+                queue.add(pair);
+                assertTrue(queue.runs() <= 20000 / 2 / 64);
+            }
+            assertTrue(queue.spilled() > 0);
+            while (!expected.isEmpty()) {
+                assertEquals(expected.poll().sequence, queue.poll().sequence);
+            }
+            assertTrue(queue.isEmpty());
+        }
+    }
+
+    @Test
+    public void testStalePairsAreDropped() throws Exception {
+        IntRule a = new IntRule(new int[]{0, 1}, new int[]{2});
+        IntRule b = new IntRule(new int[]{1, 0}, new int[]{});
+        try (PairQueue queue = new PairQueue(3, PairStrategy.OLDEST, 1)) {
+            IntRule.CriticalPair first = new IntRule.CriticalPair(new int[]{0}, new int[]{});
+            queue.add(first);
+            IntRule.CriticalPair stale = a.getCritical(b, 1);
+            b.removed = true;
+            queue.add(stale);
+            queue.add(new IntRule.CriticalPair(new int[]{1}, new int[]{}));
+            assertEquals(1, queue.dropped());
+            assertSame(first, queue.poll());
+            assertEquals(1, queue.poll().to1[0]);
+            assertNull(queue.poll());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package kbs;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static kbs.IntRuleTest.word;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for {@link PairSet}
+ */
+public class PairSetTest {
+
+    @Test
+    public void testAdd() throws Exception {
+        PairSet set = new PairSet();
+        assertTrue(set.add(word("AB"), word("C")));
+        assertFalse(set.add(word("AB"), word("C")));
+        assertFalse(set.add(word("C"), word("AB")));
+        assertTrue(set.add(word("AB"), word("D")));
+        assertTrue(set.add(word("A"), word("BC")));
+        assertTrue(set.add(word(""), word("ABC")));
+        assertFalse(set.add(word("ABC"), word("")));
+        assertEquals(4, set.size());
+    }
+
+    @Test
+    public void testMany() throws Exception {
+        PairSet set = new PairSet();
+        Set<String> reference = new HashSet<>();
+        Random random = new Random(5);
+        for (int i = 0; i < 20000; i++) {
+            int[] a = randomWord(random);
+            int[] b = randomWord(random);
+            String key = Words.compare(a, b) >= 0
+                    ? Words.toString(a) + "=" + Words.toString(b)
+                    : Words.toString(b) + "=" + Words.toString(a);
+            assertEquals(reference.add(key), set.add(a, b));
+        }
+        assertEquals(reference.size(), set.size());
+    }
+
+    @Test
+    public void testBound() throws Exception {
+        PairSet set = new PairSet(64 * 1024);
+        Random random = new Random(7);
+        for (int i = 0; i < 100000; i++) {
+            set.add(randomWord(random, 12), randomWord(random, 12));
+            assertTrue(set.bytes() <= 64 * 1024);
+        }
+        assertTrue(set.cleared() > 0);
+        assertTrue(set.add(word("XY"), word("Z")));
+        assertFalse(set.add(word("Z"), word("XY")));
+    }
+
+    private static int[] randomWord(Random random) {
+        return randomWord(random, 6);
+    }
+
+    private static int[] randomWord(Random random, int maxLength) {
+        int[] word = new int[random.nextInt(maxLength)];
+        for (int i = 0; i < word.length; i++) word[i] = random.nextInt(3);
+        return word;
+    }
+}
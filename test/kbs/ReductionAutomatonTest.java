@@ -0,0 +1,51 @@
+package kbs;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static kbs.IntRuleTest.word;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for {@link ReductionAutomaton}
+ */
+public class ReductionAutomatonTest {
+
+    private final ReductionAutomaton.ReductionBuffer buffer = new ReductionAutomaton.ReductionBuffer();
+
+    private int[] reduce(ReductionAutomaton automaton, String input, List<IntRule> extra) {
+        int length = automaton.reduce(word(input), input.length(), extra, buffer);
+        return Arrays.copyOf(buffer.out, length);
+    }
+
+    @Test
+    public void testReduce() throws Exception {
+        ReductionAutomaton automaton = ReductionAutomaton.build(3, Arrays.asList(
+                new IntRule(word("AAA"), word("")),
+                new IntRule(word("BB"), word("")),
+                new IntRule(word("BAB"), word("AA"))));
+        assertArrayEquals(word(""), reduce(automaton, "", Collections.emptyList()));
+        assertArrayEquals(word("CAC"), reduce(automaton, "CAC", Collections.emptyList()));
+        //BAB -> AA, then the A before it completes AAA
+        assertArrayEquals(word(""), reduce(automaton, "ABAB", Collections.emptyList()));
+        assertArrayEquals(word("C"), reduce(automaton, "CBBAAABB", Collections.emptyList()));
+        assertArrayEquals(word("ABA"), reduce(automaton, "ABBBA", Collections.emptyList()));
+    }
+
+    @Test
+    public void testExtraAndRemoved() throws Exception {
+        IntRule removed = new IntRule(word("CC"), word("A"));
+        ReductionAutomaton automaton = ReductionAutomaton.build(3, Arrays.asList(
+                new IntRule(word("AA"), word("")), removed));
+        assertArrayEquals(word(""), reduce(automaton, "CCA", Collections.emptyList()));
+
+        removed.removed = true;
+        assertArrayEquals(word("CCA"), reduce(automaton, "CCA", Collections.emptyList()));
+
+        //the extra rule creates a match for the automaton
+        List<IntRule> extra = Collections.singletonList(new IntRule(word("CB"), word("A")));
+        assertArrayEquals(word("A"), reduce(automaton, "ACBA", extra));
+        assertArrayEquals(word("C"), reduce(automaton, "CCBA", extra));
+    }
+}
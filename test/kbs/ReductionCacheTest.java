@@ -0,0 +1,60 @@
+package kbs;
+
+import org.junit.Test;
+
+import static kbs.IntRuleTest.word;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for {@link ReductionCache}
+ */
+public class ReductionCacheTest {
+
+    @Test
+    public void testGetPut() {
+        ReductionCache cache = new ReductionCache(1 << 16);
+        assertNull(cache.get(word("ABA")));
+        cache.put(word("ABA"), word("B"));
+        assertArrayEquals(word("B"), cache.get(word("ABA")));
+        cache.put(word("ABA"), word("B")); //again, no extra room
+
+        //a part of an array, written over itself
+        int[] words = word("BBABAB");
+        assertEquals(1, cache.get(words, 2, 3, words, 2));
+        assertArrayEquals(word("BBBBAB"), words);
+        assertEquals(-1, cache.get(words, 0, 3, words, 0));
+
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(0.5, cache.getHitRate(), 1e-9);
+        assertEquals(1, cache.size());
+        assertEquals(ReductionCache.ENTRY_BYTES + 16, cache.getBytes());
+    }
+
+    @Test
+    public void testEviction() {
+        //room for three entries of a four letter word and an empty normal form
+        ReductionCache cache = new ReductionCache(3 * (ReductionCache.ENTRY_BYTES + 16));
+        cache.put(word("AAAA"), new int[0]);
+        cache.put(word("BBBB"), new int[0]);
+        cache.put(word("ABAB"), new int[0]);
+        assertNotNull(cache.get(word("AAAA"))); //BBBB is now the least recently used
+        cache.put(word("BABA"), new int[0]);
+        assertEquals(3, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertNull(cache.get(word("BBBB")));
+        assertNotNull(cache.get(word("AAAA")));
+        assertNotNull(cache.get(word("ABAB")));
+        assertNotNull(cache.get(word("BABA")));
+        assertTrue(cache.getBytes() <= cache.getMaxBytes());
+
+        //too big to keep at all
+        cache.put(new int[1000], new int[0]);
+        assertNull(cache.get(new int[1000]));
+        assertEquals(3, cache.size());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getBytes());
+    }
+}
@@ -0,0 +1,75 @@
+package kbs;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static kbs.IntRuleTest.word;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for {@link RuleTrie}
+ */
+public class RuleTrieTest {
+
+    private static Set<IntRule> collect(RuleTrie trie, String prefix) {
+        int[] word = word(prefix);
+        int node = trie.walk(word, 0, word.length, false);
+        Set<IntRule> result = new HashSet<>();
+        if (node >= 0) trie.collect(node, result);
+        return result;
+    }
+
+    @Test
+    public void testRemove() throws Exception {
+        RuleTrie trie = new RuleTrie(26);
+        IntRule a = new IntRule(word("ABCD"), word(""));
+        IntRule b = new IntRule(word("ABX"), word(""));
+        trie.add(a.from, 0, a.from.length, false, a);
+        trie.add(b.from, 0, b.from.length, false, b);
+        assertEquals(6, trie.size());
+        assertEquals(new HashSet<>(Arrays.asList(a, b)), collect(trie, "AB"));
+
+        //the nodes C and D go, AB still has b
+        trie.remove(a.from, 0, a.from.length, false, a);
+        assertEquals(4, trie.size());
+        assertEquals(Collections.singleton(b), collect(trie, "AB"));
+        assertTrue(collect(trie, "ABC").isEmpty());
+
+        //the freed nodes are used again
+        IntRule c = new IntRule(word("ABYZ"), word(""));
+        trie.add(c.from, 0, c.from.length, true, c);
+        assertEquals(8, trie.size());
+        assertEquals(Collections.singleton(c), collect(trie, "ZYBA"));
+        assertEquals(Collections.singleton(b), collect(trie, "ABX"));
+
+        trie.remove(b.from, 0, b.from.length, false, b);
+        trie.remove(c.from, 0, c.from.length, true, c);
+        assertEquals(1, trie.size());
+        assertTrue(collect(trie, "").isEmpty());
+    }
+
+    @Test
+    public void testBounded() throws Exception {
+        //a completion adds and removes rules all the time, the trie only holds the live ones
+        Random random = new Random(3);
+        SubwordIndex index = new SubwordIndex(2, rule -> rule.from);
+        Deque<IntRule> live = new ArrayDeque<>();
+        RuleTrie trie = new RuleTrie(2);
+        for (int i = 0; i < 20000; i++) {
+            int[] from = new int[10 + random.nextInt(10)];
+            for (int j = 0; j < from.length; j++) from[j] = random.nextInt(2);
+            IntRule rule = new IntRule(from, new int[0]);
+            trie.add(from, 0, from.length, false, rule);
+            index.add(rule);
+            live.add(rule);
+            if (live.size() > 20) {
+                IntRule old = live.poll();
+                trie.remove(old.from, 0, old.from.length, false, old);
+                index.remove(old);
+            }
+        }
+        assertTrue(trie.size() <= 1 + 20 * 19);
+        for (IntRule rule : live) assertTrue(index.containing(rule.from).contains(rule));
+    }
+}
@@ -0,0 +1,74 @@
+package kbs;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static kbs.IntRuleTest.word;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for {@link SubwordIndex}
+ */
+public class SubwordIndexTest {
+
+    @Test
+    public void testContaining() throws Exception {
+        SubwordIndex index = new SubwordIndex(26, rule -> rule.from);
+        IntRule a = new IntRule(word("ABCBC"), word("P"));
+        IntRule b = new IntRule(word("CBA"), word("Q"));
+        IntRule c = new IntRule(word("D"), word(""));
+        index.add(a);
+        index.add(b);
+        index.add(c);
+        assertEquals(new TreeSet<>(Arrays.asList(a, b)), index.containing(word("CB")));
+        assertEquals(Collections.singleton(a), index.containing(word("BC")));
+        assertEquals(Collections.singleton(c), index.containing(word("D")));
+        assertTrue(index.containing(word("AA")).isEmpty());
+
+        index.remove(a);
+        assertEquals(Collections.singleton(b), index.containing(word("CB")));
+        assertTrue(index.containing(word("BC")).isEmpty());
+        index.remove(a);
+        assertEquals(Collections.singleton(b), index.containing(word("CB")));
+    }
+
+    @Test
+    public void testToSide() throws Exception {
+        SubwordIndex index = new SubwordIndex(26, rule -> rule.to);
+        IntRule a = new IntRule(word("ABCD"), word("BC"));
+        IntRule b = new IntRule(word("XYZ"), word(""));
+        index.add(a);
+        index.add(b);
+        assertEquals(Collections.singleton(a), index.containing(word("C")));
+        assertTrue(index.containing(word("X")).isEmpty());
+    }
+
+    @Test
+    public void testSameAsScan() throws Exception {
+        Random random = new Random(7);
+        SubwordIndex index = new SubwordIndex(2, rule -> rule.from);
+        List<IntRule> rules = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            int[] from = new int[1 + random.nextInt(7)];
+            for (int j = 0; j < from.length; j++) from[j] = random.nextInt(2);
+            IntRule rule = new IntRule(from, new int[0]);
+            if (!rules.contains(rule)) {
+                rules.add(rule);
+                index.add(rule);
+            }
+            if (random.nextInt(4) == 0) {
+                index.remove(rules.remove(random.nextInt(rules.size())));
+            }
+
+            int[] word = new int[1 + random.nextInt(3)];
+            for (int j = 0; j < word.length; j++) word[j] = random.nextInt(2);
+            IntRule probe = new IntRule(word, new int[0]);
+            Set<IntRule> expected = new TreeSet<>();
+            for (IntRule r : rules) {
+                if (probe.indexIn(r.from, r.from.length) >= 0) expected.add(r);
+            }
+            assertEquals(expected, index.containing(word));
+        }
+    }
+}
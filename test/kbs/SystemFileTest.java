@@ -0,0 +1,98 @@
+package kbs;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static kbs.IntRewriteSystemTest.*;
+import static org.junit.Assert.*;
+
+/**
+ * Test class for {@link SystemFile}, through {@link IntRewriteSystem#save} and {@link IntRewriteSystem#load}
+ */
+public class SystemFileTest {
+    private Path file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = Files.createTempFile("kbs-test", ".bin");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testSaveAndLoad() throws Exception {
+        IntRewriteSystem system = group168();
+        system.save(file);
+        IntRewriteSystem loaded = IntRewriteSystem.load(file);
+
+        assertEquals(system.getCompleteRules(), loaded.getCompleteRules());
+        assertEquals(2, loaded.getAlphabetSize());
+        assertEquals(BigInteger.valueOf(GROUP_168_SIZE), loaded.countNormalForms());
+        Random random = new Random(1);
+        for (int i = 0; i < 200; i++) {
+            int[] word = new int[random.nextInt(30)];
+            for (int j = 0; j < word.length; j++) word[j] = random.nextInt(2);
+            assertArrayEquals(system.getUniqueNF(word), loaded.getUniqueNF(word));
+        }
+        assertNull(IntRewriteSystem.loadAlphabet(file));
+    }
+
+    @Test
+    public void testAlphabet() throws Exception {
+        Alphabet<Character> alphabet = new Alphabet<>(Arrays.asList('s', 'r'), Comparator.naturalOrder());
+        Map<List<Character>, List<Character>> relations = new HashMap<>();
+        relations.put(Arrays.asList('r', 'r', 'r'), Collections.emptyList());
+        relations.put(Arrays.asList('s', 's'), Collections.emptyList());
+        relations.put(Arrays.asList('r', 's', 'r', 's'), Collections.emptyList());
+        IntRewriteSystem.of(relations, alphabet).save(file, alphabet);
+
+        Alphabet<String> loaded = IntRewriteSystem.loadAlphabet(file);
+        assertEquals(Arrays.asList("r", "s"), loaded.getLetters());
+        assertEquals(BigInteger.valueOf(6), IntRewriteSystem.load(file).countNormalForms());
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotASystem() throws Exception {
+        Files.write(file, "not a rewrite system".getBytes("UTF-8"));
+        IntRewriteSystem.load(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncated() throws Exception {
+        system("AAA=", "BB=", "ABAB=").save(file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 10));
+        IntRewriteSystem.load(file);
+    }
+
+    @Test
+    public void testCorruptSize() throws Exception {
+        system("AAA=", "BB=", "ABAB=").save(file);
+        byte[] bytes = Files.readAllBytes(file);
+        //no letter names, so the rule count is at 20 and the lengths of the first rule follow it
+        for (int offset : new int[]{20, 24, 28}) {
+            for (int value : new int[]{-1, 1 << 26, Integer.MAX_VALUE}) {
+                byte[] corrupt = bytes.clone();
+                ByteBuffer.wrap(corrupt).putInt(offset, value);
+                Files.write(file, corrupt);
+                try {
+                    IntRewriteSystem.load(file);
+                    fail("size " + value + " at " + offset);
+                } catch (IOException e) {
+                    assertTrue(e.getMessage(), e.getMessage().startsWith("Size out of range"));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package parser;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test class for {@link FastParser}
+ */
+public class FastParserTest {
+
+    private FastParser parser;
+
+    @Before
+    public void setup() {
+        parser = new FastParser();
+    }
+
+    /**
+     * The left side written with the letters again
+     */
+    private String translateLHS(String str) throws ParseException {
+        Presentation presentation = parser.parse(str);
+        return toString(presentation.getLetters(), presentation.getLeft(0));
+    }
+
+    private static String toString(char[] letters, int[] word) {
+        StringBuilder sb = new StringBuilder();
+        for (int x : word) {
+            sb.append(letters[x >> 1]);
+            if ((x & 1) != 0) sb.append('\'');
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testSyntax() throws ParseException {
+        assertEquals("S'", translateLHS("S'"));
+        assertEquals("a'a'", translateLHS("a^-2"));
+        assertEquals("a", translateLHS("a'^-1"));
+        assertEquals("PT", translateLHS("PQ'RR'QT"));
+        assertEquals("p", translateLHS("p^3p'^2"));
+        assertEquals("abbabb", translateLHS("(ab^2)^2"));
+        assertEquals("b'a'b'a'", translateLHS("(ab)^-2"));
+        assertEquals("", translateLHS("(ab)^1000(b'a')^1000"));
+        assertEquals("ab", translateLHS("a(bc)^7(c'b')^7b"));
+    }
+
+    @Test
+    public void testRelations() throws ParseException {
+        Presentation presentation = parser.parse("# comment\r\n\r\nba=ab\r\nc^2=1\nb\n");
+        assertEquals("abc", new String(presentation.getLetters()));
+        assertEquals(3, presentation.size());
+        assertArrayEquals(new int[]{2, 0}, presentation.getLeft(0));
+        assertArrayEquals(new int[]{0, 2}, presentation.getRight(0));
+        assertArrayEquals(new int[]{4, 4}, presentation.getLeft(1));
+        assertArrayEquals(new int[0], presentation.getRight(1));
+        assertArrayEquals(new int[0], presentation.getRight(2));
+        int[][] relators = presentation.relators();
+        assertArrayEquals(new int[]{2, 0, 3, 1}, relators[0]);
+        assertArrayEquals(new int[]{4, 4}, relators[1]);
+        assertArrayEquals(new int[]{2}, relators[2]);
+    }
+
+    @Test
+    public void testLongPower() throws ParseException {
+        long start = System.nanoTime();
+        Presentation presentation = parser.parse("(ab^3)^5000=(a^100000)^10");
+        assertEquals(20000, presentation.getLeft(0).length);
+        assertEquals(1000000, presentation.getRight(0).length);
+        assertTrue("Too slow", System.nanoTime() - start < 2_000_000_000L);
+    }
+
+    @Test
+    public void testErrors() {
+        String[] wrong = {"ab\nb=a)", "a\n\n=b", "a^0", "a^", "ab=(ba", "a1", "a^99999999999"};
+        int[] lines = {2, 3, 1, 1, 1, 1, 1};
+        for (int i = 0; i < wrong.length; i++) {
+            try {
+                parser.parse(wrong[i]);
+                fail(wrong[i] + " is not valid");
+            } catch (ParseException e) {
+                assertTrue(e.getMessage(), e.getMessage().startsWith("line " + lines[i] + ":"));
+            }
+        }
+    }
+
+    @Test(expected = ParseException.class)
+    public void testMaxWordLength() throws ParseException {
+        parser.setMaxWordLength(1000);
+        parser.parse("a=(ab)^501");
+    }
+
+    @Test
+    public void testSameAsParser() throws Exception {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> list = Files.list(Paths.get("res"))) {
+            list.forEach(files::add);
+        }
+        assertFalse(files.isEmpty());
+        for (Path file : files) {
+            List<Parser.Result> results = new ArrayList<>();
+            for (String line : Files.readAllLines(file)) {
+                if (!line.isEmpty() && !line.startsWith("#")) results.add(new Parser().parse(line));
+            }
+            Presentation expected = Presentation.of(results);
+            Presentation actual;
+            try (BufferedReader reader = Files.newBufferedReader(file)) {
+                actual = parser.parse(reader);
+            }
+            assertEquals(file.toString(), new String(expected.getLetters()), new String(actual.getLetters()));
+            assertEquals(file.toString(), expected.size(), actual.size());
+            for (int r = 0; r < expected.size(); r++) {
+                assertArrayEquals(file.toString(), expected.getLeft(r), actual.getLeft(r));
+                assertArrayEquals(file.toString(), expected.getRight(r), actual.getRight(r));
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package tc;
+
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test class for {@link ToddCoxeter}
+ */
+public class ToddCoxeterTest {
+
+    /**
+     * Code a word, lower case letters are generators a, b, ... and upper case letters their inverses
+     */
+    static int[] word(String letters) {
+        int[] word = new int[letters.length()];
+        for (int i = 0; i < word.length; i++) {
+            char c = letters.charAt(i);
+            word[i] = ToddCoxeter.letter(Character.toLowerCase(c) - 'a', Character.isUpperCase(c));
+        }
+        return word;
+    }
+
+    static ToddCoxeter enumeration(ToddCoxeter.Strategy strategy, int generators, String... relators) {
+        int[][] coded = new int[relators.length][];
+        for (int i = 0; i < relators.length; i++) coded[i] = word(relators[i]);
+        ToddCoxeter enumeration = new ToddCoxeter(generators, coded);
+        enumeration.setStrategy(strategy);
+        return enumeration;
+    }
+
+    private static void assertOrder(int order, int generators, String... relators) {
+        for (ToddCoxeter.Strategy strategy : ToddCoxeter.Strategy.values()) {
+            ToddCoxeter enumeration = enumeration(strategy, generators, relators);
+            assertEquals(strategy.toString(), order, enumeration.enumerate());
+            assertTrue(enumeration.isClosed());
+        }
+    }
+
+    @Test
+    public void testOrders() throws Exception {
+        assertOrder(1, 1, "a");
+        assertOrder(7, 1, "aaaaaaa");
+        assertOrder(10, 2, "aaaaa", "bb", "abab");
+        assertOrder(24, 2, "aa", "bbb", "abababab");
+        assertOrder(60, 2, "aa", "bbb", "ababababab");
+        assertOrder(168, 2, "aa", "bbb", "ababababababab", "aBabaBabaBabaBab");
+        //the relators are freely reduced: a a^-1 b b = 1 is b^2 = 1
+        assertOrder(2, 1, "aAaa", "aaAA");
+    }
+
+    @Test
+    public void testCoincidences() throws Exception {
+        //Fibonacci group F(2,5) is cyclic of order 11, enumerating it merges many cosets
+        assertOrder(11, 5, "abC", "bcD", "cdE", "deA", "eaB");
+    }
+
+    @Test
+    public void testSubgroup() throws Exception {
+        for (ToddCoxeter.Strategy strategy : ToddCoxeter.Strategy.values()) {
+            ToddCoxeter enumeration = new ToddCoxeter(2,
+                    new int[][]{word("aa"), word("bbb"), word("ababababab")}, new int[][]{word("b")});
+            enumeration.setStrategy(strategy);
+            assertEquals(20, enumeration.enumerate());
+            assertTrue(enumeration.isClosed());
+            assertEquals(0, enumeration.act(0, ToddCoxeter.letter(1, false)));
+        }
+    }
+
+    @Test
+    public void testLimit() throws Exception {
+        ToddCoxeter unlimited = enumeration(ToddCoxeter.Strategy.HLT, 5, "abC", "bcD", "cdE", "deA", "eaB");
+        unlimited.enumerate();
+        int needed = unlimited.getMaxAliveCosets();
+        assertTrue(unlimited.getDefinedCosets() > needed);
+
+        //fewer rows than were defined in total, works because dead cosets are compacted away
+        for (ToddCoxeter.Strategy strategy : ToddCoxeter.Strategy.values()) {
+            ToddCoxeter limited = enumeration(strategy, 5, "abC", "bcD", "cdE", "deA", "eaB");
+            limited.setMaxCosets(needed + 20);
+            assertEquals(11, limited.enumerate());
+            assertTrue(limited.isClosed());
+        }
+
+        ToddCoxeter tooSmall = enumeration(ToddCoxeter.Strategy.HLT, 2, "aa", "bbb", "abababab");
+        tooSmall.setMaxCosets(10);
+        try {
+            tooSmall.enumerate();
+            fail("The table limit should be reached");
+        } catch (IllegalStateException e) {
+            //expected
+        }
+    }
+
+    @Test(expected = CancellationException.class)
+    public void testInterrupt() throws Exception {
+        ToddCoxeter enumeration = enumeration(ToddCoxeter.Strategy.FELSCH, 2, "aa", "bbb", "ababababab");
+        Thread.currentThread().interrupt();
+        try {
+            enumeration.enumerate();
+        } finally {
+            Thread.interrupted();
+        }
+    }
+}